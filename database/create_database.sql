@@ -35,11 +35,14 @@ CREATE TABLE IF NOT EXISTS expenses (
     date DATE NOT NULL,
     payment_method VARCHAR(50),
     is_recurring BOOLEAN DEFAULT FALSE,
+    recurring_expense_id INT NULL,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
     FOREIGN KEY (category_id) REFERENCES categories(id) ON DELETE RESTRICT,
-    INDEX idx_user_date (user_id, date)
+    INDEX idx_user_date (user_id, date),
+    INDEX idx_user_category_date (user_id, category_id, date),
+    INDEX idx_recurring (recurring_expense_id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 -- Create Budget table
@@ -56,6 +59,36 @@ CREATE TABLE IF NOT EXISTS budgets (
     UNIQUE KEY unique_budget (user_id, category_id, start_date, end_date)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
+-- Create Recurring Expenses table
+CREATE TABLE IF NOT EXISTS recurring_expenses (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    user_id INT NOT NULL,
+    category_id INT NOT NULL,
+    amount DECIMAL(10,2) NOT NULL,
+    description VARCHAR(255),
+    frequency VARCHAR(20) NOT NULL,
+    start_date DATE NOT NULL,
+    end_date DATE NOT NULL,
+    is_active BOOLEAN DEFAULT TRUE,
+    next_due_date DATE NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    FOREIGN KEY (category_id) REFERENCES categories(id),
+    INDEX idx_active_next_due (is_active, next_due_date)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Create Expense Rollups table (per-user, per-category, per-month running totals)
+CREATE TABLE IF NOT EXISTS expense_rollups (
+    user_id INT NOT NULL,
+    category_id INT NOT NULL,
+    month_start DATE NOT NULL,
+    total DECIMAL(14,2) NOT NULL DEFAULT 0,
+    txn_count INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (user_id, category_id, month_start),
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    FOREIGN KEY (category_id) REFERENCES categories(id) ON DELETE RESTRICT
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
 -- Insert default categories
 INSERT INTO categories (name, description, icon_name) VALUES
 ('Food', 'Groceries, restaurants, and food delivery', 'food'),
@@ -95,6 +128,12 @@ INSERT INTO budgets (user_id, category_id, amount, start_date, end_date) VALUES
 (2, 1, 400.00, CURRENT_DATE, DATE_ADD(CURRENT_DATE, INTERVAL 1 MONTH)),
 (2, 5, 300.00, CURRENT_DATE, DATE_ADD(CURRENT_DATE, INTERVAL 1 MONTH));
 
+-- Seed rollups from the sample expenses
+INSERT INTO expense_rollups (user_id, category_id, month_start, total, txn_count)
+SELECT user_id, category_id, DATE_FORMAT(date, '%Y-%m-01'), SUM(amount), COUNT(*)
+FROM expenses
+GROUP BY user_id, category_id, DATE_FORMAT(date, '%Y-%m-01');
+
 -- Create views for common queries
 CREATE OR REPLACE VIEW expense_summary AS
 SELECT 
@@ -28,7 +28,8 @@ CREATE TABLE IF NOT EXISTS expenses (
     recurring_expense_id INT NULL,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     FOREIGN KEY (user_id) REFERENCES users(id),
-    FOREIGN KEY (category_id) REFERENCES categories(id)
+    FOREIGN KEY (category_id) REFERENCES categories(id),
+    INDEX idx_user_category_date (user_id, category_id, date)
 );
 
 -- Create budgets table
@@ -55,9 +56,23 @@ CREATE TABLE IF NOT EXISTS recurring_expenses (
     start_date DATE NOT NULL,
     end_date DATE NOT NULL,
     is_active BOOLEAN DEFAULT TRUE,
+    next_due_date DATE NULL,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     FOREIGN KEY (user_id) REFERENCES users(id),
-    FOREIGN KEY (category_id) REFERENCES categories(id)
+    FOREIGN KEY (category_id) REFERENCES categories(id),
+    INDEX idx_active_next_due (is_active, next_due_date)
+);
+
+-- Create Expense Rollups table (per-user, per-category, per-month running totals)
+CREATE TABLE IF NOT EXISTS expense_rollups (
+    user_id INT NOT NULL,
+    category_id INT NOT NULL,
+    month_start DATE NOT NULL,
+    total DECIMAL(14,2) NOT NULL DEFAULT 0,
+    txn_count INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (user_id, category_id, month_start),
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    FOREIGN KEY (category_id) REFERENCES categories(id) ON DELETE RESTRICT
 );
 
 -- Add foreign key for recurring expenses in expenses table
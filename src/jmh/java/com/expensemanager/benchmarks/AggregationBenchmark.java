@@ -0,0 +1,81 @@
+package com.expensemanager.benchmarks;
+
+import com.expensemanager.dao.ExpenseDAO;
+import com.expensemanager.models.DashboardSnapshot;
+import com.expensemanager.utils.QueryExecutor;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Category and date-range aggregation for one user, both from the rollup
+ * table and as a full scan of the user's expenses for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AggregationBenchmark {
+    private static final String SCAN_SQL = "SELECT category_id, SUM(amount) FROM expenses " +
+                "WHERE user_id = ? GROUP BY category_id";
+
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+
+    @Param({"30", "365"})
+    public int rangeDays;
+
+    private final ExpenseDAO expenseDAO = new ExpenseDAO();
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        BenchmarkDatabase.open(rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkDatabase.close();
+    }
+
+    @Benchmark
+    public Map<String, BigDecimal> categoryTotalsFromRollups() throws SQLException {
+        return expenseDAO.getExpensesByCategory(BenchmarkDatabase.BENCH_USER_ID);
+    }
+
+    @Benchmark
+    public Map<Integer, BigDecimal> categoryTotalsFullScan() throws SQLException {
+        Map<Integer, BigDecimal> totals = new HashMap<>();
+        QueryExecutor.forEachRow(SCAN_SQL, row -> totals.put(row.getInt(1), row.getBigDecimal(2)),
+            BenchmarkDatabase.BENCH_USER_ID);
+        return totals;
+    }
+
+    @Benchmark
+    public Map<String, BigDecimal> dateRangeTotals() throws SQLException {
+        LocalDate end = LocalDate.now();
+        return expenseDAO.getExpensesByDateRange(BenchmarkDatabase.BENCH_USER_ID, end.minusDays(rangeDays), end);
+    }
+
+    @Benchmark
+    public DashboardSnapshot dashboardSnapshot() throws SQLException {
+        return expenseDAO.getDashboardSnapshot(BenchmarkDatabase.BENCH_USER_ID, 10);
+    }
+}
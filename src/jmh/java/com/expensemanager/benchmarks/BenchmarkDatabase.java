@@ -0,0 +1,176 @@
+package com.expensemanager.benchmarks;
+
+import com.expensemanager.dao.CategoryCache;
+import com.expensemanager.dao.ExpenseRollupDAO;
+import com.expensemanager.utils.DatabaseUtil;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+
+/**
+ * Embedded H2 database seeded with synthetic expenses, on the application's
+ * own schema. Each data set size gets its own file under target/bench-db and
+ * is only seeded once, so large sets are reused across runs. Benchmarks that
+ * write work on a throwaway copy, so the seeded files keep exactly the rows
+ * they were seeded with.
+ */
+final class BenchmarkDatabase {
+    static final int BENCH_USER_ID = 1;
+    static final String[] CATEGORIES = {
+        "Food", "Transport", "Housing", "Entertainment", "Shopping", "Healthcare", "Education", "Other"
+    };
+
+    // Users the rows are spread over; the benchmark user gets its share like everyone else
+    private static final int USERS = Integer.getInteger("bench.users", 10);
+    // Days of history the synthetic expenses cover, ending today
+    private static final int HISTORY_DAYS = Integer.getInteger("bench.historyDays", 5 * 365);
+    private static final int SEED_BATCH_SIZE = 10_000;
+    private static final String H2_SUFFIX = ".mv.db";
+
+    // The copy opened by openCopy(), if any
+    private static Path scratch;
+
+    private BenchmarkDatabase() {}
+
+    /**
+     * Points DatabaseUtil at the data set with the given number of rows,
+     * creating and seeding it first if needed.
+     */
+    static void open(int rows) throws SQLException {
+        use(dataFile(rows));
+        // The same schema, indexes and migrations the application runs on
+        DatabaseUtil.initializeDatabase();
+
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE IF NOT EXISTS bench_meta (seeded_rows INT NOT NULL)");
+            }
+            if (seededRows(conn) != rows) {
+                seed(conn, rows);
+            }
+        }
+    }
+
+    /**
+     * Like open(), but on a fresh copy of the data set that close() deletes.
+     * For benchmarks that insert, since the DAO commits its own transactions.
+     */
+    static void openCopy(int rows) throws SQLException, IOException {
+        open(rows);
+        DatabaseUtil.closeConnection();
+        Path copy = scratchFile(rows);
+        Files.createDirectories(copy.getParent());
+        Files.copy(Paths.get(dataFile(rows) + H2_SUFFIX), Paths.get(copy + H2_SUFFIX),
+            StandardCopyOption.REPLACE_EXISTING);
+        use(copy.toString());
+        scratch = copy;
+    }
+
+    static void close() {
+        DatabaseUtil.closeConnection();
+        if (scratch != null) {
+            try {
+                Files.deleteIfExists(Paths.get(scratch + H2_SUFFIX));
+            } catch (IOException e) {
+                System.err.println("Could not delete benchmark copy " + scratch + ": " + e.getMessage());
+            }
+            scratch = null;
+        }
+    }
+
+    private static String dataFile(int rows) {
+        return "target/bench-db/bench-" + rows;
+    }
+
+    private static Path scratchFile(int rows) {
+        return Paths.get("target/bench-db/scratch/bench-" + rows);
+    }
+
+    private static void use(String file) {
+        DatabaseUtil.closeConnection();
+        System.setProperty("db.type", "h2");
+        System.setProperty("db.file", file);
+        System.setProperty("db.user", "sa");
+        System.setProperty("db.password", "");
+        CategoryCache.invalidate();
+    }
+
+    private static int seededRows(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT seeded_rows FROM bench_meta")) {
+            return rs.next() ? rs.getInt(1) : -1;
+        }
+    }
+
+    private static void seed(Connection conn, int rows) throws SQLException {
+        System.out.println("Seeding benchmark database with " + rows + " expenses...");
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DELETE FROM bench_meta");
+            stmt.execute("DELETE FROM expense_rollups");
+            stmt.execute("DELETE FROM expenses");
+            stmt.execute("DELETE FROM budgets");
+            stmt.execute("DELETE FROM recurring_expenses");
+            stmt.execute("DELETE FROM categories");
+            stmt.execute("DELETE FROM users");
+            conn.commit();
+        }
+
+        try (PreparedStatement users = conn.prepareStatement("INSERT INTO users (id, username, password) VALUES (?, ?, ?)");
+             PreparedStatement categories = conn.prepareStatement("INSERT INTO categories (id, name) VALUES (?, ?)")) {
+            for (int i = 1; i <= USERS; i++) {
+                users.setInt(1, i);
+                users.setString(2, "bench" + i);
+                users.setString(3, "x");
+                users.addBatch();
+            }
+            users.executeBatch();
+            for (int i = 0; i < CATEGORIES.length; i++) {
+                categories.setInt(1, i + 1);
+                categories.setString(2, CATEGORIES[i]);
+                categories.addBatch();
+            }
+            categories.executeBatch();
+            conn.commit();
+        }
+
+        // Fixed seed so every run sees the same data
+        SplittableRandom random = new SplittableRandom(42);
+        LocalDate today = LocalDate.now();
+        String insertSql = "INSERT INTO expenses (user_id, category_id, amount, description, date) VALUES (?, ?, ?, ?, ?)";
+        try (PreparedStatement insert = conn.prepareStatement(insertSql)) {
+            for (int i = 0; i < rows; i++) {
+                insert.setInt(1, 1 + i % USERS);
+                insert.setInt(2, 1 + random.nextInt(CATEGORIES.length));
+                insert.setBigDecimal(3, BigDecimal.valueOf(100 + random.nextInt(50_000), 2));
+                insert.setString(4, "Synthetic expense " + i);
+                insert.setDate(5, Date.valueOf(today.minusDays(random.nextInt(HISTORY_DAYS))));
+                insert.addBatch();
+                if ((i + 1) % SEED_BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                    conn.commit();
+                }
+            }
+            insert.executeBatch();
+            conn.commit();
+        }
+
+        conn.setAutoCommit(true);
+
+        new ExpenseRollupDAO().rebuildAll();
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("INSERT INTO bench_meta (seeded_rows) VALUES (" + rows + ")");
+        }
+    }
+}
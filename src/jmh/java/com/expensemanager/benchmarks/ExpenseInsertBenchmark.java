@@ -0,0 +1,83 @@
+package com.expensemanager.benchmarks;
+
+import com.expensemanager.dao.BatchInsertResult;
+import com.expensemanager.dao.ExpenseDAO;
+import com.expensemanager.models.Expense;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Single-row inserts against batched inserts, both including the rollup
+ * update that runs in the same transaction. Results are per expense. Runs on
+ * a copy of the data set, so the inserted rows don't grow the shared one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpenseInsertBenchmark {
+    private static final int BATCH_ROWS = 1000;
+
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+
+    private final ExpenseDAO expenseDAO = new ExpenseDAO();
+    private List<Expense> batch;
+    private int counter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException, IOException {
+        BenchmarkDatabase.openCopy(rows);
+        batch = new ArrayList<>(BATCH_ROWS);
+        for (int i = 0; i < BATCH_ROWS; i++) {
+            batch.add(newExpense(i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkDatabase.close();
+    }
+
+    @Benchmark
+    public void insertSingle() throws SQLException {
+        expenseDAO.createExpense(newExpense(counter++));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_ROWS)
+    public BatchInsertResult<Expense> insertBatch() throws SQLException {
+        return expenseDAO.createExpenses(batch);
+    }
+
+    private static Expense newExpense(int i) {
+        Expense expense = new Expense();
+        expense.setUserId(BenchmarkDatabase.BENCH_USER_ID);
+        expense.setCategoryName(BenchmarkDatabase.CATEGORIES[i % BenchmarkDatabase.CATEGORIES.length]);
+        expense.setAmount(BigDecimal.valueOf(100 + i % 10_000, 2));
+        expense.setDate(LocalDate.now().minusDays(i % 365));
+        expense.setDescription("Benchmark expense " + i);
+        return expense;
+    }
+}
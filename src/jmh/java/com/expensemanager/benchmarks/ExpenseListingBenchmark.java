@@ -0,0 +1,77 @@
+package com.expensemanager.benchmarks;
+
+import com.expensemanager.dao.ExpenseCursor;
+import com.expensemanager.dao.ExpenseDAO;
+import com.expensemanager.models.Expense;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Recent-expense listing and keyset paging, first page and deep into history.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpenseListingBenchmark {
+    private static final int PAGE_SIZE = 200;
+    // How many pages in the deep-page cursor sits
+    private static final int DEEP_PAGES = 20;
+
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+
+    private final ExpenseDAO expenseDAO = new ExpenseDAO();
+    private ExpenseCursor deepCursor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        BenchmarkDatabase.open(rows);
+        ExpenseCursor cursor = null;
+        for (int i = 0; i < DEEP_PAGES; i++) {
+            List<Expense> page = expenseDAO.getExpensesPage(BenchmarkDatabase.BENCH_USER_ID, cursor, PAGE_SIZE);
+            if (page.isEmpty()) {
+                break;
+            }
+            cursor = ExpenseCursor.after(page.get(page.size() - 1));
+        }
+        deepCursor = cursor;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkDatabase.close();
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> recentExpenses() throws SQLException {
+        return expenseDAO.getRecentExpenses(BenchmarkDatabase.BENCH_USER_ID, 10);
+    }
+
+    @Benchmark
+    public List<Expense> firstPage() throws SQLException {
+        return expenseDAO.getExpensesPage(BenchmarkDatabase.BENCH_USER_ID, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Expense> deepPage() throws SQLException {
+        return expenseDAO.getExpensesPage(BenchmarkDatabase.BENCH_USER_ID, deepCursor, PAGE_SIZE);
+    }
+}
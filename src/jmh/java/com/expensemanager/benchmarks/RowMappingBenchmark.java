@@ -0,0 +1,99 @@
+package com.expensemanager.benchmarks;
+
+import com.expensemanager.models.Expense;
+import com.expensemanager.utils.DatabaseUtil;
+import com.expensemanager.utils.QueryExecutor;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Typed RowMapper mapping against Map-per-row mapping over the same result
+ * set. legacyMapPerRow() is the loop QueryExecutor.executeQuery() used to
+ * run, kept here as the baseline: a fresh HashMap, getColumnName() and
+ * getObject() for every row. mapPerRow() is today's executeQuery(), which
+ * adapts ResultRow. The query reads every user's rows, so up to a million
+ * rows can be mapped; a limit above the data set size maps all of it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+// A million mapped rows are held at once
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RowMappingBenchmark {
+    private static final String SQL = "SELECT id, user_id, amount, category_id, date, description " +
+                "FROM expenses ORDER BY id LIMIT ?";
+
+    @Param({"10000", "1000000"})
+    public int rows;
+
+    @Param({"1000", "1000000"})
+    public int resultRows;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        BenchmarkDatabase.open(rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkDatabase.close();
+    }
+
+    @Benchmark
+    public List<Expense> rowMapper() throws SQLException {
+        return QueryExecutor.query(SQL, row -> new Expense(
+            row.getInt(1), row.getInt(2), row.getBigDecimal(3), row.getInt(4), null,
+            row.getLocalDate(5), row.getString(6)), resultRows);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> mapPerRow() throws SQLException {
+        return QueryExecutor.executeQuery(SQL, resultRows);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> legacyMapPerRow() throws SQLException {
+        List<Map<String, Object>> results = new ArrayList<>();
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL)) {
+            stmt.setObject(1, resultRows);
+            try (ResultSet rs = stmt.executeQuery()) {
+                ResultSetMetaData metaData = rs.getMetaData();
+                int columnCount = metaData.getColumnCount();
+                while (rs.next()) {
+                    Map<String, Object> row = new HashMap<>();
+                    for (int i = 1; i <= columnCount; i++) {
+                        String columnName = metaData.getColumnName(i);
+                        Object value = rs.getObject(i);
+                        row.put(columnName, value);
+                    }
+                    results.add(row);
+                }
+            }
+        }
+        return results;
+    }
+}
@@ -1,12 +1,31 @@
 package com.expensemanager;
 
 import com.formdev.flatlaf.FlatLightLaf;
+import com.expensemanager.dao.ExpenseRollupDAO;
 import com.expensemanager.ui.LoginFrame;
+import com.expensemanager.utils.ChatSessions;
+import com.expensemanager.utils.DatabaseUtil;
+import com.expensemanager.utils.RecurringExpenseScheduler;
 import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 
 public class Main {
     public static void main(String[] args) {
+        // Maintenance: recompute the expense rollups from scratch and exit
+        if (args.length > 0 && "--rebuild-rollups".equals(args[0])) {
+            rebuildRollups();
+            return;
+        }
+
+        // Creates missing tables and migrates older schemas; safe to run on every start
+        DatabaseUtil.initializeDatabase();
+
+        // Generate due recurring expenses now and then whenever the next one falls due
+        new RecurringExpenseScheduler().start();
+
+        // Release the chat client's pooled connections on exit
+        Runtime.getRuntime().addShutdownHook(new Thread(ChatSessions::shutdown));
+
         // Set up FlatLaf look and feel
         try {
             UIManager.setLookAndFeel(new FlatLightLaf());
@@ -20,4 +39,20 @@ public class Main {
             loginFrame.setVisible(true);
         });
     }
-} 
\ No newline at end of file
+
+    private static void rebuildRollups() {
+        boolean success = false;
+        try {
+            new ExpenseRollupDAO().rebuildAll();
+            System.out.println("Expense rollups rebuilt successfully!");
+            success = true;
+        } catch (Exception e) {
+            System.err.println("Error rebuilding expense rollups: " + e.getMessage());
+        } finally {
+            DatabaseUtil.closeConnection();
+        }
+        if (!success) {
+            System.exit(1);
+        }
+    }
+}
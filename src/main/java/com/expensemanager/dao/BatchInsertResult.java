@@ -0,0 +1,42 @@
+package com.expensemanager.dao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a bulk insert: how many rows made it in and which ones were rejected.
+ */
+public class BatchInsertResult<T> {
+    private int insertedCount;
+    private final List<RowFailure<T>> failures = new ArrayList<>();
+
+    void addInserted(int count) {
+        insertedCount += count;
+    }
+
+    void addFailure(int index, T row, String reason) {
+        failures.add(new RowFailure<>(index, row, reason));
+    }
+
+    public int getInsertedCount() { return insertedCount; }
+    public List<RowFailure<T>> getFailures() { return Collections.unmodifiableList(failures); }
+    public boolean hasFailures() { return !failures.isEmpty(); }
+
+    public static class RowFailure<T> {
+        private final int index;
+        private final T row;
+        private final String reason;
+
+        RowFailure(int index, T row, String reason) {
+            this.index = index;
+            this.row = row;
+            this.reason = reason;
+        }
+
+        // Position of the row in the submitted collection
+        public int getIndex() { return index; }
+        public T getRow() { return row; }
+        public String getReason() { return reason; }
+    }
+}
@@ -3,6 +3,7 @@ package com.expensemanager.dao;
 import com.expensemanager.models.Budget;
 import com.expensemanager.utils.DatabaseUtil;
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.math.BigDecimal;
@@ -11,16 +12,18 @@ public class BudgetDAO {
     
     public Budget createBudget(Budget budget) throws SQLException {
         String sql = "INSERT INTO budgets (user_id, category_id, amount, start_date, end_date) " +
-                    "SELECT ?, id, ?, ?, ? FROM categories WHERE name = ?";
+                    "VALUES (?, ?, ?, ?, ?)";
+        
+        int categoryId = CategoryCache.requireId(budget.getCategory());
         
         try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             
             pstmt.setInt(1, budget.getUserId());
-            pstmt.setBigDecimal(2, budget.getAmount());
-            pstmt.setDate(3, Date.valueOf(budget.getStartDate()));
-            pstmt.setDate(4, Date.valueOf(budget.getEndDate()));
-            pstmt.setString(5, budget.getCategory());
+            pstmt.setInt(2, categoryId);
+            pstmt.setBigDecimal(3, budget.getAmount());
+            pstmt.setDate(4, Date.valueOf(budget.getStartDate()));
+            pstmt.setDate(5, Date.valueOf(budget.getEndDate()));
             
             int affectedRows = pstmt.executeUpdate();
             if (affectedRows == 0) {
@@ -30,6 +33,7 @@ public class BudgetDAO {
             try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
                     budget.setId(generatedKeys.getInt(1));
+                    BudgetTracker.invalidate(budget.getUserId());
                     return budget;
                 } else {
                     throw new SQLException("Creating budget failed, no ID obtained.");
@@ -38,11 +42,24 @@ public class BudgetDAO {
         }
     }
 
+    // Budgets that have not ended yet, by start date; served from BudgetTracker's interval index
     public List<Budget> findByUserId(int userId) throws SQLException {
-        String sql = "SELECT b.*, c.name as category_name FROM budgets b " +
-                    "JOIN categories c ON b.category_id = c.id " +
-                    "WHERE b.user_id = ? AND b.end_date >= CURRENT_DATE " +
-                    "ORDER BY b.start_date";
+        return BudgetTracker.getBudgetsOverlapping(userId, LocalDate.now(), LocalDate.MAX);
+    }
+
+    /**
+     * All of the user's budgets, each with the sum of the expenses in its
+     * category and date range. BudgetTracker loads this once per user and
+     * keeps the totals current from then on.
+     */
+    public List<Budget> findWithSpent(int userId) throws SQLException {
+        String sql = "SELECT b.id, b.category_id, b.amount, b.start_date, b.end_date, " +
+                    "COALESCE(SUM(e.amount), 0) as spent " +
+                    "FROM budgets b " +
+                    "LEFT JOIN expenses e ON e.user_id = b.user_id AND e.category_id = b.category_id " +
+                    "AND e.date BETWEEN b.start_date AND b.end_date " +
+                    "WHERE b.user_id = ? " +
+                    "GROUP BY b.id, b.category_id, b.amount, b.start_date, b.end_date";
         
         List<Budget> budgets = new ArrayList<>();
         try (Connection conn = DatabaseUtil.getConnection();
@@ -53,13 +70,14 @@ public class BudgetDAO {
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
                     Budget budget = new Budget(
-                        rs.getInt("user_id"),
-                        rs.getString("category_name"),
+                        userId,
+                        CategoryCache.getName(rs.getInt("category_id")),
                         rs.getBigDecimal("amount"),
                         rs.getDate("start_date").toLocalDate(),
                         rs.getDate("end_date").toLocalDate()
                     );
                     budget.setId(rs.getInt("id"));
+                    budget.setSpent(rs.getBigDecimal("spent"));
                     budgets.add(budget);
                 }
             }
@@ -68,31 +86,16 @@ public class BudgetDAO {
     }
 
     public BigDecimal getCurrentBudget(int userId, String category) throws SQLException {
-        String sql = "SELECT b.amount FROM budgets b " +
-                    "JOIN categories c ON b.category_id = c.id " +
-                    "WHERE b.user_id = ? AND c.name = ? " +
-                    "AND CURRENT_DATE BETWEEN b.start_date AND b.end_date";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, userId);
-            pstmt.setString(2, category);
-            
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getBigDecimal("amount");
-                }
-            }
-        }
-        return BigDecimal.ZERO;
+        Budget budget = BudgetTracker.getBudgetCovering(userId, category, LocalDate.now());
+        return budget != null ? budget.getAmount() : BigDecimal.ZERO;
     }
 
     public boolean updateBudget(Budget budget) throws SQLException {
-        String sql = "UPDATE budgets b " +
-                    "SET amount = ?, start_date = ?, end_date = ?, category_id = " +
-                    "(SELECT id FROM categories WHERE name = ?) " +
-                    "WHERE b.id = ? AND b.user_id = ?";
+        String sql = "UPDATE budgets " +
+                    "SET amount = ?, start_date = ?, end_date = ?, category_id = ? " +
+                    "WHERE id = ? AND user_id = ?";
+        
+        int categoryId = CategoryCache.requireId(budget.getCategory());
         
         try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -100,11 +103,13 @@ public class BudgetDAO {
             pstmt.setBigDecimal(1, budget.getAmount());
             pstmt.setDate(2, Date.valueOf(budget.getStartDate()));
             pstmt.setDate(3, Date.valueOf(budget.getEndDate()));
-            pstmt.setString(4, budget.getCategory());
+            pstmt.setInt(4, categoryId);
             pstmt.setInt(5, budget.getId());
             pstmt.setInt(6, budget.getUserId());
             
-            return pstmt.executeUpdate() > 0;
+            boolean updated = pstmt.executeUpdate() > 0;
+            BudgetTracker.invalidate(budget.getUserId());
+            return updated;
         }
     }
 
@@ -117,7 +122,9 @@ public class BudgetDAO {
             pstmt.setInt(1, budgetId);
             pstmt.setInt(2, userId);
             
-            return pstmt.executeUpdate() > 0;
+            boolean deleted = pstmt.executeUpdate() > 0;
+            BudgetTracker.invalidate(userId);
+            return deleted;
         }
     }
 } 
\ No newline at end of file
@@ -0,0 +1,77 @@
+package com.expensemanager.dao;
+
+import com.expensemanager.models.Budget;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable interval tree over budget date ranges. Budgets are sorted by start
+ * date and laid out as an implicit balanced tree (the middle of each index
+ * range is its root), with the latest end date of every subtree stored next
+ * to it. A lookup skips every subtree that ends before, or starts after, the
+ * dates asked for, so it costs O(log n + matches).
+ */
+final class BudgetIndex {
+    private final Budget[] budgets;
+    private final long[] starts;
+    private final long[] ends;
+    // Latest end date in the subtree rooted at each index
+    private final long[] maxEnds;
+
+    BudgetIndex(List<Budget> budgets) {
+        this.budgets = budgets.toArray(new Budget[0]);
+        Arrays.sort(this.budgets, Comparator.comparing(Budget::getStartDate).thenComparing(Budget::getId));
+        int n = this.budgets.length;
+        starts = new long[n];
+        ends = new long[n];
+        maxEnds = new long[n];
+        for (int i = 0; i < n; i++) {
+            starts[i] = this.budgets[i].getStartDate().toEpochDay();
+            ends[i] = this.budgets[i].getEndDate().toEpochDay();
+        }
+        buildMaxEnds(0, n - 1);
+    }
+
+    // Budgets whose range contains the date, in start date order
+    List<Budget> covering(LocalDate date) {
+        return overlapping(date, date);
+    }
+
+    // Budgets whose range shares at least one day with [from, to], in start date order
+    List<Budget> overlapping(LocalDate from, LocalDate to) {
+        List<Budget> matches = new ArrayList<>();
+        collect(0, budgets.length - 1, from.toEpochDay(), to.toEpochDay(), matches);
+        return matches;
+    }
+
+    private long buildMaxEnds(int lo, int hi) {
+        if (lo > hi) {
+            return Long.MIN_VALUE;
+        }
+        int mid = (lo + hi) >>> 1;
+        long max = Math.max(ends[mid], Math.max(buildMaxEnds(lo, mid - 1), buildMaxEnds(mid + 1, hi)));
+        maxEnds[mid] = max;
+        return max;
+    }
+
+    private void collect(int lo, int hi, long from, long to, List<Budget> matches) {
+        if (lo > hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        if (maxEnds[mid] < from) {
+            return; // Everything in this subtree ended before the range
+        }
+        collect(lo, mid - 1, from, to, matches);
+        if (starts[mid] > to) {
+            return; // This budget and everything to its right start after the range
+        }
+        if (ends[mid] >= from) {
+            matches.add(budgets[mid]);
+        }
+        collect(mid + 1, hi, from, to, matches);
+    }
+}
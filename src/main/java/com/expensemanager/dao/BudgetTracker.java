@@ -0,0 +1,232 @@
+package com.expensemanager.dao;
+
+import com.expensemanager.models.Budget;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Live spent-vs-budget counters. A user's budgets are loaded with their spent
+ * totals once, on first use; after that ExpenseDAO reports every committed
+ * change and the counters are adjusted in place, so lookups never go back to
+ * the database. Listeners hear about a budget the moment it crosses 80% or
+ * 100% of its amount.
+ *
+ * Each user's budgets sit in a BudgetIndex per category (plus one over all
+ * categories), so finding the budgets that cover a date stays logarithmic
+ * however many past budgets the user keeps.
+ */
+public class BudgetTracker {
+    public static final int[] THRESHOLDS = {80, 100};
+
+    private static final Map<Integer, UserBudgets> users = new ConcurrentHashMap<>();
+    private static final List<ThresholdListener> listeners = new CopyOnWriteArrayList<>();
+    // Expense commits hold the read side until their changes are recorded; loading a user's
+    // totals holds the write side, so every change is either in the loaded totals or applied
+    // to them afterwards. Loads happen once per user, so commits rarely wait.
+    private static final ReentrantReadWriteLock loadLock = new ReentrantReadWriteLock();
+
+    private BudgetTracker() {}
+
+    public interface ThresholdListener {
+        /**
+         * Called on the thread that wrote the expense, after it committed.
+         * The budget is a snapshot taken right after the change.
+         */
+        void thresholdReached(Budget budget, int percent);
+    }
+
+    public static void addThresholdListener(ThresholdListener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeThresholdListener(ThresholdListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * The user's budgets with their current spent totals.
+     */
+    public static List<Budget> getBudgets(int userId) throws SQLException {
+        UserBudgets budgets = forUser(userId);
+        synchronized (budgets) {
+            List<Budget> copies = new ArrayList<>(budgets.byId.size());
+            for (Budget budget : budgets.byId.values()) {
+                copies.add(budget.copy());
+            }
+            return copies;
+        }
+    }
+
+    // Returns null if the user has no such budget
+    public static BigDecimal getRemaining(int userId, int budgetId) throws SQLException {
+        UserBudgets budgets = forUser(userId);
+        synchronized (budgets) {
+            Budget budget = budgets.byId.get(budgetId);
+            return budget != null ? budget.getRemaining() : null;
+        }
+    }
+
+    // Remaining amount of the budget covering the category on the given day, or null if there is none
+    public static BigDecimal getRemaining(int userId, String category, LocalDate date) throws SQLException {
+        Budget budget = getBudgetCovering(userId, category, date);
+        return budget != null ? budget.getRemaining() : null;
+    }
+
+    // The budget covering the category on the given day, or null if there is none
+    public static Budget getBudgetCovering(int userId, String category, LocalDate date) throws SQLException {
+        UserBudgets budgets = forUser(userId);
+        synchronized (budgets) {
+            List<Budget> covering = budgets.categoryIndex(category).covering(date);
+            return covering.isEmpty() ? null : covering.get(0).copy();
+        }
+    }
+
+    /**
+     * The user's budgets in any category whose range overlaps [from, to],
+     * ordered by start date.
+     */
+    public static List<Budget> getBudgetsOverlapping(int userId, LocalDate from, LocalDate to) throws SQLException {
+        UserBudgets budgets = forUser(userId);
+        synchronized (budgets) {
+            List<Budget> copies = new ArrayList<>();
+            for (Budget budget : budgets.all.overlapping(from, to)) {
+                copies.add(budget.copy());
+            }
+            return copies;
+        }
+    }
+
+    // Call after any write to the user's budgets; the next lookup reloads them
+    public static void invalidate(int userId) {
+        users.remove(userId);
+        DataVersions.bump(userId);
+    }
+
+    /**
+     * Commits an expense transaction and applies its changes to the loaded
+     * counters as one step with respect to loads, then notifies listeners.
+     * Users whose budgets are not loaded are skipped; their totals are read
+     * fresh when first needed.
+     */
+    static void commit(Connection conn, List<SpendChange> changes) throws SQLException {
+        List<Budget> reached = new ArrayList<>();
+        List<Integer> reachedPercents = new ArrayList<>();
+
+        Lock lock = loadLock.readLock();
+        lock.lock();
+        try {
+            conn.commit();
+            record(changes, reached, reachedPercents);
+        } finally {
+            lock.unlock();
+        }
+
+        // Outside the lock, so a listener may look budgets up again
+        for (int i = 0; i < reached.size(); i++) {
+            for (ThresholdListener listener : listeners) {
+                listener.thresholdReached(reached.get(i), reachedPercents.get(i));
+            }
+        }
+    }
+
+    private static void record(List<SpendChange> changes, List<Budget> reached, List<Integer> reachedPercents) {
+        for (SpendChange change : changes) {
+            UserBudgets budgets = users.get(change.userId);
+            if (budgets == null) {
+                continue;
+            }
+            String category;
+            try {
+                category = CategoryCache.getName(change.categoryId);
+            } catch (SQLException e) {
+                // Can't tell which budgets are affected; reload them on next use
+                invalidate(change.userId);
+                continue;
+            }
+            synchronized (budgets) {
+                for (Budget budget : budgets.categoryIndex(category).covering(change.date)) {
+                    double before = budget.getPercentUsed();
+                    budget.setSpent(budget.getSpent().add(change.amount));
+                    double after = budget.getPercentUsed();
+                    for (int threshold : THRESHOLDS) {
+                        if (before < threshold && after >= threshold) {
+                            reached.add(budget.copy());
+                            reachedPercents.add(threshold);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static UserBudgets forUser(int userId) throws SQLException {
+        UserBudgets budgets = users.get(userId);
+        if (budgets != null) {
+            return budgets;
+        }
+        // No expense commit can fall between the query and the registration
+        Lock lock = loadLock.writeLock();
+        lock.lock();
+        try {
+            budgets = users.get(userId);
+            if (budgets == null) {
+                budgets = new UserBudgets(new BudgetDAO().findWithSpent(userId));
+                users.put(userId, budgets);
+            }
+            return budgets;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class UserBudgets {
+        private static final BudgetIndex EMPTY = new BudgetIndex(Collections.emptyList());
+
+        private final Map<Integer, Budget> byId = new HashMap<>();
+        private final Map<String, BudgetIndex> byCategory = new HashMap<>();
+        private final BudgetIndex all;
+
+        UserBudgets(List<Budget> budgets) {
+            Map<String, List<Budget>> grouped = new HashMap<>();
+            for (Budget budget : budgets) {
+                byId.put(budget.getId(), budget);
+                grouped.computeIfAbsent(budget.getCategory(), k -> new ArrayList<>()).add(budget);
+            }
+            grouped.forEach((category, list) -> byCategory.put(category, new BudgetIndex(list)));
+            all = new BudgetIndex(budgets);
+        }
+
+        BudgetIndex categoryIndex(String category) {
+            return byCategory.getOrDefault(category, EMPTY);
+        }
+    }
+
+    /**
+     * One committed change to a user's spending: a positive amount for an
+     * added expense, negative for a removed one.
+     */
+    static final class SpendChange {
+        private final int userId;
+        private final int categoryId;
+        private final LocalDate date;
+        private final BigDecimal amount;
+
+        SpendChange(int userId, int categoryId, LocalDate date, BigDecimal amount) {
+            this.userId = userId;
+            this.categoryId = categoryId;
+            this.date = date;
+            this.amount = amount;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.expensemanager.dao;
+
+import com.expensemanager.utils.DatabaseUtil;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory copy of the categories table shared by all DAOs.
+ * Ids map to names through a dense array indexed by id; names map back to ids
+ * through a hash map. The whole table is swapped in as one immutable snapshot.
+ */
+public class CategoryCache {
+    private static final String LOAD_SQL = "SELECT id, name FROM categories";
+    // Minimum gap between reloads triggered by a lookup miss
+    private static final long MISS_RELOAD_INTERVAL_MS = 1000;
+
+    private static volatile Snapshot snapshot;
+    private static volatile long lastLoadedAt;
+
+    private CategoryCache() {}
+
+    public static int getId(String name) throws SQLException {
+        if (name == null) {
+            return -1;
+        }
+        int id = current().idOf(name);
+        if (id < 0 && System.currentTimeMillis() - lastLoadedAt > MISS_RELOAD_INTERVAL_MS) {
+            // The category may have been added since the last load
+            id = reload().idOf(name);
+        }
+        return id;
+    }
+
+    public static int requireId(String name) throws SQLException {
+        int id = getId(name);
+        if (id < 0) {
+            throw new SQLException("Category not found: " + name);
+        }
+        return id;
+    }
+
+    public static String getName(int id) throws SQLException {
+        String name = current().nameOf(id);
+        if (name == null && System.currentTimeMillis() - lastLoadedAt > MISS_RELOAD_INTERVAL_MS) {
+            name = reload().nameOf(id);
+        }
+        return name;
+    }
+
+    public static List<String> getNames() throws SQLException {
+        return current().names;
+    }
+
+    public static void refresh() throws SQLException {
+        reload();
+    }
+
+    private static Snapshot reload() throws SQLException {
+        Snapshot loaded;
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            loaded = load(conn);
+        }
+        snapshot = loaded;
+        lastLoadedAt = System.currentTimeMillis();
+        return loaded;
+    }
+
+    // Call after any write to the categories table; the next lookup reloads it
+    public static void invalidate() {
+        snapshot = null;
+    }
+
+    private static Snapshot current() throws SQLException {
+        Snapshot s = snapshot;
+        return s != null ? s : reload();
+    }
+
+    private static Snapshot load(Connection conn) throws SQLException {
+        Map<String, Integer> idsByName = new HashMap<>();
+        int maxId = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(LOAD_SQL);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                int id = rs.getInt(1);
+                idsByName.put(rs.getString(2), id);
+                maxId = Math.max(maxId, id);
+            }
+        }
+
+        String[] namesById = new String[maxId + 1];
+        List<String> names = new ArrayList<>(idsByName.size());
+        for (Map.Entry<String, Integer> entry : idsByName.entrySet()) {
+            namesById[entry.getValue()] = entry.getKey();
+        }
+        for (String name : namesById) {
+            if (name != null) {
+                names.add(name);
+            }
+        }
+        return new Snapshot(namesById, idsByName, Collections.unmodifiableList(names));
+    }
+
+    private static final class Snapshot {
+        private final String[] namesById;
+        private final Map<String, Integer> idsByName;
+        private final List<String> names;
+
+        private Snapshot(String[] namesById, Map<String, Integer> idsByName, List<String> names) {
+            this.namesById = namesById;
+            this.idsByName = idsByName;
+            this.names = names;
+        }
+
+        int idOf(String name) {
+            Integer id = idsByName.get(name);
+            return id != null ? id : -1;
+        }
+
+        String nameOf(int id) {
+            return id >= 0 && id < namesById.length ? namesById[id] : null;
+        }
+    }
+}
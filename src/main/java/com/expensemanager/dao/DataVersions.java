@@ -0,0 +1,26 @@
+package com.expensemanager.dao;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-user counters that move on every committed expense write and every
+ * budget change. Anything derived from a user's data can remember the version
+ * it was built from and compare, instead of querying to find out whether it
+ * is stale.
+ */
+public class DataVersions {
+    private static final Map<Integer, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    private DataVersions() {}
+
+    public static long get(int userId) {
+        AtomicLong version = versions.get(userId);
+        return version != null ? version.get() : 0;
+    }
+
+    static void bump(int userId) {
+        versions.computeIfAbsent(userId, id -> new AtomicLong()).incrementAndGet();
+    }
+}
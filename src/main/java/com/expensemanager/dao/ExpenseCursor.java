@@ -0,0 +1,25 @@
+package com.expensemanager.dao;
+
+import com.expensemanager.models.Expense;
+import java.time.LocalDate;
+
+/**
+ * Keyset position in a user's expense history, ordered by (date DESC, id DESC).
+ * A page fetched "after" a cursor starts with the row right below it.
+ */
+public final class ExpenseCursor {
+    private final LocalDate date;
+    private final int id;
+
+    public ExpenseCursor(LocalDate date, int id) {
+        this.date = date;
+        this.id = id;
+    }
+
+    public static ExpenseCursor after(Expense expense) {
+        return new ExpenseCursor(expense.getDate(), expense.getId());
+    }
+
+    public LocalDate getDate() { return date; }
+    public int getId() { return id; }
+}
@@ -1,58 +1,132 @@
 package com.expensemanager.dao;
 
+import com.expensemanager.models.Budget;
+import com.expensemanager.models.DashboardSnapshot;
 import com.expensemanager.models.Expense;
 import com.expensemanager.utils.DatabaseUtil;
+import com.expensemanager.utils.QueryExecutor;
+import com.expensemanager.utils.RowCallback;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
 import java.sql.Date;
 import java.time.LocalDate;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 
 public class ExpenseDAO {
+    // Rows committed per transaction in createExpenses
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    
+    private final ExpenseRollupDAO rollupDAO = new ExpenseRollupDAO();
     
     public BigDecimal getTotalExpenses(int userId) throws SQLException {
-        String sql = "SELECT COALESCE(SUM(amount), 0) as total FROM expenses WHERE user_id = ?";
+        return rollupDAO.getTotal(userId);
+    }
+    
+    public long getExpenseCount(int userId) throws SQLException {
+        return rollupDAO.getCount(userId);
+    }
+    
+    /**
+     * Streams all of the user's expenses to the callback, oldest first, with
+     * columns date, category, description and amount. Rows are read through a
+     * streaming cursor and never collected, so any history size can be
+     * exported in constant memory.
+     */
+    public void forEachExpense(int userId, RowCallback callback) throws SQLException {
+        String sql = "SELECT e.date, c.name AS category, e.description, e.amount " +
+                    "FROM expenses e JOIN categories c ON c.id = e.category_id " +
+                    "WHERE e.user_id = ? " +
+                    "ORDER BY e.date, e.id";
+        
+        QueryExecutor.streamRows(sql, callback, userId);
+    }
+    
+    /**
+     * Streams the date, amount, description and category_id of the user's
+     * expenses between the two dates, inclusive, without collecting them.
+     */
+    public void forEachExpenseBetween(int userId, LocalDate startDate, LocalDate endDate, RowCallback callback)
+            throws SQLException {
+        String sql = "SELECT date, amount, description, category_id FROM expenses " +
+                    "WHERE user_id = ? AND date BETWEEN ? AND ?";
+        
+        QueryExecutor.forEachRow(sql, callback, userId, Date.valueOf(startDate), Date.valueOf(endDate));
+    }
+    
+    public Map<String, BigDecimal> getExpensesByDateRange(int userId, LocalDate startDate, LocalDate endDate) 
+            throws SQLException {
+        String sql = "SELECT category_id, COALESCE(SUM(amount), 0) as total " +
+                    "FROM expenses " +
+                    "WHERE user_id = ? AND date BETWEEN ? AND ? " +
+                    "GROUP BY category_id ORDER BY total DESC";
+        
+        Map<String, BigDecimal> expenses = new LinkedHashMap<>();
         
         try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setInt(1, userId);
+            stmt.setDate(2, Date.valueOf(startDate));
+            stmt.setDate(3, Date.valueOf(endDate));
             
             try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getBigDecimal("total");
+                while (rs.next()) {
+                    String category = CategoryCache.getName(rs.getInt("category_id"));
+                    BigDecimal total = rs.getBigDecimal("total");
+                    expenses.put(category, total);
                 }
-                return BigDecimal.ZERO;
             }
         }
+        
+        return expenses;
     }
     
-    public Map<String, BigDecimal> getExpensesByDateRange(int userId, LocalDate startDate, LocalDate endDate) 
+    public Map<String, BigDecimal> getExpensesByCategory(int userId) throws SQLException {
+        return rollupDAO.getTotalsByCategory(userId);
+    }
+    
+    // Whole months only, read from the rollups
+    public Map<String, BigDecimal> getExpensesByCategory(int userId, LocalDate fromMonth, LocalDate toMonth)
             throws SQLException {
-        String sql = "SELECT c.name, COALESCE(SUM(e.amount), 0) as total " +
-                    "FROM expenses e " +
-                    "JOIN categories c ON e.category_id = c.id " +
-                    "WHERE e.user_id = ? AND e.date BETWEEN ? AND ? " +
-                    "GROUP BY c.id, c.name ORDER BY total DESC";
+        return rollupDAO.getTotalsByCategory(userId, fromMonth, toMonth);
+    }
+    
+    public Map<LocalDate, BigDecimal> getMonthlyTotals(int userId, LocalDate fromMonth, LocalDate toMonth)
+            throws SQLException {
+        return rollupDAO.getMonthlyTotals(userId, fromMonth, toMonth);
+    }
+    
+    public List<Map<String, Object>> getRecentExpenses(int userId, int limit) throws SQLException {
+        String sql = "SELECT id, amount, category_id, date, description " +
+                    "FROM expenses " +
+                    "WHERE user_id = ? ORDER BY date DESC, id DESC LIMIT ?";
         
-        Map<String, BigDecimal> expenses = new LinkedHashMap<>();
+        List<Map<String, Object>> expenses = new ArrayList<>();
         
         try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setInt(1, userId);
-            stmt.setDate(2, Date.valueOf(startDate));
-            stmt.setDate(3, Date.valueOf(endDate));
+            stmt.setInt(2, Math.min(limit, 100));
             
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    String category = rs.getString("name");
-                    BigDecimal total = rs.getBigDecimal("total");
-                    expenses.put(category, total);
+                    Map<String, Object> expense = new HashMap<>();
+                    expense.put("id", rs.getInt("id"));
+                    expense.put("amount", rs.getBigDecimal("amount"));
+                    expense.put("category", CategoryCache.getName(rs.getInt("category_id")));
+                    Date date = rs.getDate("date");
+                    expense.put("date", date != null ? date.toLocalDate() : null);
+                    expense.put("description", rs.getString("description"));
+                    expenses.add(expense);
                 }
             }
         }
@@ -60,56 +134,150 @@ public class ExpenseDAO {
         return expenses;
     }
     
-    public Map<String, BigDecimal> getExpensesByCategory(int userId) throws SQLException {
-        String sql = "SELECT c.name, COALESCE(SUM(e.amount), 0) as total " +
-                    "FROM expenses e " +
-                    "JOIN categories c ON e.category_id = c.id " +
-                    "WHERE e.user_id = ? " +
-                    "GROUP BY c.id, c.name ORDER BY total DESC";
+    /**
+     * Everything the dashboard shows, fetched in a single round trip: the
+     * user's rollup rows and their most recent expenses come back from one
+     * UNION ALL query, and totals, averages and trends are aggregated here.
+     */
+    public DashboardSnapshot getDashboardSnapshot(int userId, int recentLimit) throws SQLException {
+        String sql = "SELECT 0 as kind, category_id, month_start as day, total as amount, 0 as id, NULL as description " +
+                    "FROM expense_rollups WHERE user_id = ? " +
+                    "UNION ALL " +
+                    "(SELECT 1, category_id, date, amount, id, description " +
+                    "FROM expenses WHERE user_id = ? " +
+                    "ORDER BY date DESC, id DESC LIMIT ?)";
         
-        Map<String, BigDecimal> categoryTotals = new LinkedHashMap<>();
+        Map<Integer, BigDecimal> totalsByCategoryId = new HashMap<>();
+        Map<LocalDate, BigDecimal> totalsByMonth = new HashMap<>();
+        List<Expense> recent = new ArrayList<>(recentLimit);
+        BigDecimal total = BigDecimal.ZERO;
+        LocalDate firstMonth = null;
         
         try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setInt(1, userId);
+            stmt.setInt(2, userId);
+            stmt.setInt(3, recentLimit);
             
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    String category = rs.getString("name");
-                    BigDecimal total = rs.getBigDecimal("total");
-                    categoryTotals.put(category, total);
+                    int categoryId = rs.getInt(2);
+                    LocalDate day = rs.getDate(3).toLocalDate();
+                    BigDecimal amount = rs.getBigDecimal(4);
+                    
+                    if (rs.getInt(1) == 0) {
+                        total = total.add(amount);
+                        totalsByCategoryId.merge(categoryId, amount, BigDecimal::add);
+                        totalsByMonth.merge(day, amount, BigDecimal::add);
+                        if (firstMonth == null || day.isBefore(firstMonth)) {
+                            firstMonth = day;
+                        }
+                    } else {
+                        recent.add(new Expense(rs.getInt(5), userId, amount, categoryId,
+                            CategoryCache.getName(categoryId), day, rs.getString(6)));
+                    }
                 }
             }
         }
         
-        return categoryTotals;
+        // UNION ALL gives no ordering guarantee across branches
+        recent.sort(Comparator.comparing(Expense::getDate).thenComparing(Expense::getId).reversed());
+        
+        List<Map.Entry<Integer, BigDecimal>> byTotal = new ArrayList<>(totalsByCategoryId.entrySet());
+        byTotal.sort(Map.Entry.<Integer, BigDecimal>comparingByValue().reversed());
+        Map<String, BigDecimal> categoryTotals = new LinkedHashMap<>();
+        for (Map.Entry<Integer, BigDecimal> entry : byTotal) {
+            categoryTotals.put(CategoryCache.getName(entry.getKey()), entry.getValue());
+        }
+        String topCategory = categoryTotals.isEmpty() ? null : categoryTotals.keySet().iterator().next();
+        
+        LocalDate currentMonth = LocalDate.now().withDayOfMonth(1);
+        BigDecimal monthlyAverage = BigDecimal.ZERO;
+        if (firstMonth != null) {
+            long months = Math.max(1, ChronoUnit.MONTHS.between(firstMonth, currentMonth) + 1);
+            monthlyAverage = total.divide(BigDecimal.valueOf(months), 2, RoundingMode.HALF_UP);
+        }
+        
+        return new DashboardSnapshot(
+            total,
+            monthlyAverage,
+            topCategory,
+            totalsByMonth.getOrDefault(currentMonth, BigDecimal.ZERO),
+            totalsByMonth.getOrDefault(currentMonth.minusMonths(1), BigDecimal.ZERO),
+            categoryTotals,
+            recent
+        );
     }
     
-    public List<Map<String, Object>> getRecentExpenses(int userId, int limit) throws SQLException {
-        String sql = "SELECT e.id, e.amount, c.name as category, e.date, e.description " +
-                    "FROM expenses e " +
-                    "JOIN categories c ON e.category_id = c.id " +
-                    "WHERE e.user_id = ? ORDER BY e.date DESC, e.id DESC LIMIT ?";
+    /**
+     * Expenses counted against a budget, newest first. A single range scan
+     * on idx_user_category_date.
+     */
+    public List<Expense> getExpensesInBudget(Budget budget) throws SQLException {
+        String sql = "SELECT id, user_id, amount, category_id, date, description " +
+                    "FROM expenses " +
+                    "WHERE user_id = ? AND category_id = ? AND date BETWEEN ? AND ? " +
+                    "ORDER BY date DESC, id DESC";
         
-        List<Map<String, Object>> expenses = new ArrayList<>();
+        int categoryId = CategoryCache.getId(budget.getCategory());
+        List<Expense> expenses = new ArrayList<>();
+        if (categoryId < 0) {
+            return expenses;
+        }
         
         try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
+            stmt.setInt(1, budget.getUserId());
+            stmt.setInt(2, categoryId);
+            stmt.setDate(3, Date.valueOf(budget.getStartDate()));
+            stmt.setDate(4, Date.valueOf(budget.getEndDate()));
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    expenses.add(mapExpense(rs));
+                }
+            }
+        }
+        return expenses;
+    }
+    
+    /**
+     * Returns up to pageSize expenses that come after the given cursor, newest first.
+     * Pass null to start from the most recent expense. Pages by keyset on
+     * (date, id) so each page is an index range scan on idx_user_date.
+     */
+    public List<Expense> getExpensesPage(int userId, ExpenseCursor after, int pageSize) throws SQLException {
+        String firstPageSql = "SELECT id, user_id, amount, category_id, date, description " +
+                    "FROM expenses " +
+                    "WHERE user_id = ? " +
+                    "ORDER BY date DESC, id DESC LIMIT ?";
+        String nextPageSql = "SELECT id, user_id, amount, category_id, date, description " +
+                    "FROM expenses " +
+                    "WHERE user_id = ? AND (date < ? OR (date = ? AND id < ?)) " +
+                    "ORDER BY date DESC, id DESC LIMIT ?";
+        
+        List<Expense> expenses = new ArrayList<>(pageSize);
+        
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(after == null ? firstPageSql : nextPageSql)) {
+            
+            stmt.setFetchSize(pageSize);
             stmt.setInt(1, userId);
-            stmt.setInt(2, Math.min(limit, 100));
+            if (after == null) {
+                stmt.setInt(2, pageSize);
+            } else {
+                Date cursorDate = Date.valueOf(after.getDate());
+                stmt.setDate(2, cursorDate);
+                stmt.setDate(3, cursorDate);
+                stmt.setInt(4, after.getId());
+                stmt.setInt(5, pageSize);
+            }
             
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Map<String, Object> expense = new HashMap<>();
-                    expense.put("id", rs.getInt("id"));
-                    expense.put("amount", rs.getBigDecimal("amount"));
-                    expense.put("category", rs.getString("category"));
-                    Date date = rs.getDate("date");
-                    expense.put("date", date != null ? date.toLocalDate() : null);
-                    expense.put("description", rs.getString("description"));
-                    expenses.add(expense);
+                    expenses.add(mapExpense(rs));
                 }
             }
         }
@@ -117,25 +285,26 @@ public class ExpenseDAO {
         return expenses;
     }
     
+    private Expense mapExpense(ResultSet rs) throws SQLException {
+        int categoryId = rs.getInt("category_id");
+        return new Expense(
+            rs.getInt("id"),
+            rs.getInt("user_id"),
+            rs.getBigDecimal("amount"),
+            categoryId,
+            CategoryCache.getName(categoryId),
+            rs.getDate("date").toLocalDate(),
+            rs.getString("description")
+        );
+    }
+    
     public void createExpense(Expense expense) throws SQLException {
-        // First get category_id from category_name
-        String getCategoryIdSql = "SELECT id FROM categories WHERE name = ?";
         String insertExpenseSql = "INSERT INTO expenses (user_id, amount, date, description, category_id) VALUES (?, ?, ?, ?, ?)";
         
+        int categoryId = CategoryCache.requireId(expense.getCategoryName());
+        
         try (Connection conn = DatabaseUtil.getConnection()) {
-            // Get category ID
-            int categoryId;
-            try (PreparedStatement stmt = conn.prepareStatement(getCategoryIdSql)) {
-                stmt.setString(1, expense.getCategoryName());
-                try (ResultSet rs = stmt.executeQuery()) {
-                    if (!rs.next()) {
-                        throw new SQLException("Category not found: " + expense.getCategoryName());
-                    }
-                    categoryId = rs.getInt("id");
-                }
-            }
-            
-            // Insert expense with category ID
+            conn.setAutoCommit(false);
             try (PreparedStatement stmt = conn.prepareStatement(insertExpenseSql)) {
                 stmt.setInt(1, expense.getUserId());
                 stmt.setBigDecimal(2, expense.getAmount());
@@ -143,46 +312,237 @@ public class ExpenseDAO {
                 stmt.setString(4, expense.getDescription());
                 stmt.setInt(5, categoryId);
                 stmt.executeUpdate();
+                
+                ExpenseRollupDAO.Delta delta = new ExpenseRollupDAO.Delta();
+                delta.add(expense.getUserId(), categoryId, expense.getDate(), expense.getAmount());
+                delta.apply(conn);
+                delta.commit(conn);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
         }
     }
     
-    public void updateExpense(Expense expense) throws SQLException {
-        // First get category_id from category_name
-        String getCategoryIdSql = "SELECT id FROM categories WHERE name = ?";
-        String updateExpenseSql = "UPDATE expenses SET amount = ?, date = ?, description = ?, category_id = ? WHERE id = ?";
+    public BatchInsertResult<Expense> createExpenses(Collection<Expense> expenses) throws SQLException {
+        return createExpenses(expenses, DEFAULT_BATCH_SIZE);
+    }
+    
+    public BatchInsertResult<Expense> createExpenses(Collection<Expense> expenses, int batchSize) throws SQLException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        String insertExpenseSql = "INSERT INTO expenses (user_id, amount, date, description, category_id, recurring_expense_id) " +
+                    "VALUES (?, ?, ?, ?, ?, ?)";
+        
+        BatchInsertResult<Expense> result = new BatchInsertResult<>();
+        if (expenses.isEmpty()) {
+            return result;
+        }
         
         try (Connection conn = DatabaseUtil.getConnection()) {
-            // Get category ID
-            int categoryId;
-            try (PreparedStatement stmt = conn.prepareStatement(getCategoryIdSql)) {
-                stmt.setString(1, expense.getCategoryName());
-                try (ResultSet rs = stmt.executeQuery()) {
-                    if (!rs.next()) {
-                        throw new SQLException("Category not found: " + expense.getCategoryName());
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(insertExpenseSql)) {
+                ExpenseRollupDAO.Delta delta = new ExpenseRollupDAO.Delta();
+                List<Expense> chunk = new ArrayList<>(batchSize);
+                List<Integer> chunkIndexes = new ArrayList<>(batchSize);
+                int index = 0;
+                
+                for (Expense expense : expenses) {
+                    int categoryId = CategoryCache.getId(expense.getCategoryName());
+                    String problem = validateForInsert(expense, categoryId);
+                    if (problem != null) {
+                        result.addFailure(index, expense, problem);
+                    } else {
+                        expense.setCategoryId(categoryId);
+                        bindInsert(stmt, expense);
+                        stmt.addBatch();
+                        chunk.add(expense);
+                        chunkIndexes.add(index);
+                        if (chunk.size() == batchSize) {
+                            flushBatch(conn, stmt, chunk, chunkIndexes, delta, result);
+                        }
                     }
-                    categoryId = rs.getInt("id");
+                    index++;
                 }
+                flushBatch(conn, stmt, chunk, chunkIndexes, delta, result);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
-            
-            // Update expense
-            try (PreparedStatement stmt = conn.prepareStatement(updateExpenseSql)) {
-                stmt.setBigDecimal(1, expense.getAmount());
-                stmt.setDate(2, java.sql.Date.valueOf(expense.getDate()));
-                stmt.setString(3, expense.getDescription());
-                stmt.setInt(4, categoryId);
-                stmt.setInt(5, expense.getId());
-                stmt.executeUpdate();
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Inserts expenses generated from recurring schedules and moves those
+     * schedules' next_due_date forward, all in one transaction, so an
+     * occurrence is either recorded together with the advanced due date or
+     * not at all.
+     */
+    public int createRecurringOccurrences(List<Expense> occurrences, Map<Integer, LocalDate> nextDueDates)
+            throws SQLException {
+        String insertExpenseSql = "INSERT INTO expenses (user_id, amount, date, description, category_id, recurring_expense_id) " +
+                    "VALUES (?, ?, ?, ?, ?, ?)";
+        
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(insertExpenseSql)) {
+                ExpenseRollupDAO.Delta delta = new ExpenseRollupDAO.Delta();
+                for (Expense expense : occurrences) {
+                    expense.setCategoryId(CategoryCache.requireId(expense.getCategoryName()));
+                    bindInsert(stmt, expense);
+                    stmt.addBatch();
+                    delta.add(expense.getUserId(), expense.getCategoryId(), expense.getDate(), expense.getAmount());
+                }
+                if (!occurrences.isEmpty()) {
+                    stmt.executeBatch();
+                }
+                delta.apply(conn);
+                RecurringExpenseDAO.updateNextDueDates(conn, nextDueDates);
+                delta.commit(conn);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        return occurrences.size();
+    }
+    
+    private String validateForInsert(Expense expense, int categoryId) {
+        if (categoryId < 0) {
+            return "Category not found: " + expense.getCategoryName();
+        }
+        if (expense.getAmount() == null) {
+            return "Amount is required";
+        }
+        if (expense.getDate() == null) {
+            return "Date is required";
+        }
+        return null;
+    }
+    
+    private void bindInsert(PreparedStatement stmt, Expense expense) throws SQLException {
+        stmt.setInt(1, expense.getUserId());
+        stmt.setBigDecimal(2, expense.getAmount());
+        stmt.setDate(3, java.sql.Date.valueOf(expense.getDate()));
+        stmt.setString(4, expense.getDescription());
+        stmt.setInt(5, expense.getCategoryId());
+        if (expense.getRecurringExpenseId() != null) {
+            stmt.setInt(6, expense.getRecurringExpenseId());
+        } else {
+            stmt.setNull(6, Types.INTEGER);
+        }
+    }
+    
+    private void flushBatch(Connection conn, PreparedStatement stmt, List<Expense> chunk, List<Integer> chunkIndexes,
+                            ExpenseRollupDAO.Delta delta, BatchInsertResult<Expense> result) throws SQLException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            stmt.executeBatch();
+            for (Expense expense : chunk) {
+                delta.add(expense.getUserId(), expense.getCategoryId(), expense.getDate(), expense.getAmount());
+            }
+            delta.apply(conn);
+            delta.commit(conn);
+            result.addInserted(chunk.size());
+        } catch (BatchUpdateException e) {
+            // A rewritten multi-row INSERT fails as a whole, so replay the chunk
+            // row by row to find the offending rows and keep the rest
+            conn.rollback();
+            stmt.clearBatch();
+            delta.clear();
+            int inserted = 0;
+            for (int i = 0; i < chunk.size(); i++) {
+                Expense expense = chunk.get(i);
+                try {
+                    bindInsert(stmt, expense);
+                    stmt.executeUpdate();
+                    delta.add(expense.getUserId(), expense.getCategoryId(), expense.getDate(), expense.getAmount());
+                    inserted++;
+                } catch (SQLException rowError) {
+                    result.addFailure(chunkIndexes.get(i), expense, rowError.getMessage());
+                }
+            }
+            delta.apply(conn);
+            delta.commit(conn);
+            result.addInserted(inserted);
+        }
+        chunk.clear();
+        chunkIndexes.clear();
+    }
+    
+    public void updateExpense(Expense expense) throws SQLException {
+        String updateExpenseSql = "UPDATE expenses SET amount = ?, date = ?, description = ?, category_id = ? WHERE id = ?";
+        
+        int categoryId = CategoryCache.requireId(expense.getCategoryName());
+        
+        ExpenseRollupDAO.Delta delta = new ExpenseRollupDAO.Delta();
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Expense previous = lockExpense(conn, expense.getId());
+                
+                try (PreparedStatement stmt = conn.prepareStatement(updateExpenseSql)) {
+                    stmt.setBigDecimal(1, expense.getAmount());
+                    stmt.setDate(2, java.sql.Date.valueOf(expense.getDate()));
+                    stmt.setString(3, expense.getDescription());
+                    stmt.setInt(4, categoryId);
+                    stmt.setInt(5, expense.getId());
+                    stmt.executeUpdate();
+                }
+                
+                // A category or date change moves the spend between rollups and budgets
+                if (previous != null) {
+                    delta.remove(previous.getUserId(), previous.getCategoryId(), previous.getDate(), previous.getAmount());
+                    delta.add(previous.getUserId(), categoryId, expense.getDate(), expense.getAmount());
+                    delta.apply(conn);
+                }
+                delta.commit(conn);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
         }
     }
     
     public void deleteExpense(int expenseId) throws SQLException {
         String sql = "DELETE FROM expenses WHERE id = ?";
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        ExpenseRollupDAO.Delta delta = new ExpenseRollupDAO.Delta();
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Expense previous = lockExpense(conn, expenseId);
+                
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setInt(1, expenseId);
+                    stmt.executeUpdate();
+                }
+                
+                if (previous != null) {
+                    delta.remove(previous.getUserId(), previous.getCategoryId(), previous.getDate(), previous.getAmount());
+                    delta.apply(conn);
+                }
+                delta.commit(conn);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+    
+    // Reads the current row and locks it until the surrounding transaction ends
+    private Expense lockExpense(Connection conn, int expenseId) throws SQLException {
+        String sql = "SELECT id, user_id, amount, category_id, date, description " +
+                    "FROM expenses WHERE id = ? FOR UPDATE";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, expenseId);
-            stmt.executeUpdate();
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? mapExpense(rs) : null;
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,324 @@
+package com.expensemanager.dao;
+
+import com.expensemanager.utils.DatabaseUtil;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Per-user, per-category, per-month running totals kept in expense_rollups.
+ * ExpenseDAO applies deltas in the same transaction as each expense write, so
+ * dashboard totals are read from a handful of rollup rows instead of summing
+ * the user's whole history.
+ */
+public class ExpenseRollupDAO {
+
+    public BigDecimal getTotal(int userId) throws SQLException {
+        String sql = "SELECT COALESCE(SUM(total), 0) as total FROM expense_rollups WHERE user_id = ?";
+
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, userId);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getBigDecimal("total");
+                }
+                return BigDecimal.ZERO;
+            }
+        }
+    }
+
+    public long getCount(int userId) throws SQLException {
+        String sql = "SELECT COALESCE(SUM(txn_count), 0) as txn_count FROM expense_rollups WHERE user_id = ?";
+
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, userId);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong("txn_count") : 0;
+            }
+        }
+    }
+
+    public Map<String, BigDecimal> getTotalsByCategory(int userId) throws SQLException {
+        String sql = "SELECT category_id, SUM(total) as total FROM expense_rollups " +
+                    "WHERE user_id = ? GROUP BY category_id ORDER BY total DESC";
+
+        Map<String, BigDecimal> totals = new LinkedHashMap<>();
+
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, userId);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    totals.put(CategoryCache.getName(rs.getInt("category_id")), rs.getBigDecimal("total"));
+                }
+            }
+        }
+        return totals;
+    }
+
+    // Category totals between two months (inclusive), largest first
+    public Map<String, BigDecimal> getTotalsByCategory(int userId, LocalDate fromMonth, LocalDate toMonth) throws SQLException {
+        String sql = "SELECT category_id, SUM(total) as total FROM expense_rollups " +
+                    "WHERE user_id = ? AND month_start BETWEEN ? AND ? " +
+                    "GROUP BY category_id ORDER BY total DESC";
+
+        Map<String, BigDecimal> totals = new LinkedHashMap<>();
+
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, userId);
+            stmt.setDate(2, Date.valueOf(fromMonth.withDayOfMonth(1)));
+            stmt.setDate(3, Date.valueOf(toMonth.withDayOfMonth(1)));
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    totals.put(CategoryCache.getName(rs.getInt("category_id")), rs.getBigDecimal("total"));
+                }
+            }
+        }
+        return totals;
+    }
+
+    // Monthly totals between two months (inclusive), keyed by the first day of each month
+    public Map<LocalDate, BigDecimal> getMonthlyTotals(int userId, LocalDate fromMonth, LocalDate toMonth) throws SQLException {
+        String sql = "SELECT month_start, SUM(total) as total FROM expense_rollups " +
+                    "WHERE user_id = ? AND month_start BETWEEN ? AND ? " +
+                    "GROUP BY month_start ORDER BY month_start";
+
+        Map<LocalDate, BigDecimal> totals = new LinkedHashMap<>();
+
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, userId);
+            stmt.setDate(2, Date.valueOf(fromMonth.withDayOfMonth(1)));
+            stmt.setDate(3, Date.valueOf(toMonth.withDayOfMonth(1)));
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    totals.put(rs.getDate("month_start").toLocalDate(), rs.getBigDecimal("total"));
+                }
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Recomputes a user's rollups from the expenses table.
+     */
+    public void rebuild(int userId) throws SQLException {
+        String deleteSql = "DELETE FROM expense_rollups WHERE user_id = ?";
+        String insertSql = "INSERT INTO expense_rollups (user_id, category_id, month_start, total, txn_count) " +
+                    "SELECT user_id, category_id, " + monthStartExpression() + ", SUM(amount), COUNT(*) " +
+                    "FROM expenses WHERE user_id = ? " +
+                    "GROUP BY user_id, category_id, " + monthStartExpression();
+
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement delete = conn.prepareStatement(deleteSql);
+                 PreparedStatement insert = conn.prepareStatement(insertSql)) {
+                delete.setInt(1, userId);
+                delete.executeUpdate();
+                insert.setInt(1, userId);
+                insert.executeUpdate();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Recomputes the rollups of every user from scratch.
+     */
+    public void rebuildAll() throws SQLException {
+        String deleteSql = "DELETE FROM expense_rollups";
+        String insertSql = "INSERT INTO expense_rollups (user_id, category_id, month_start, total, txn_count) " +
+                    "SELECT user_id, category_id, " + monthStartExpression() + ", SUM(amount), COUNT(*) " +
+                    "FROM expenses " +
+                    "GROUP BY user_id, category_id, " + monthStartExpression();
+
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement delete = conn.prepareStatement(deleteSql);
+                 PreparedStatement insert = conn.prepareStatement(insertSql)) {
+                delete.executeUpdate();
+                insert.executeUpdate();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Compares a user's rollup total with a full SUM over their expenses.
+     * Returns true if they agree.
+     */
+    public boolean verify(int userId) throws SQLException {
+        String sql = "SELECT COALESCE(SUM(amount), 0) as total FROM expenses WHERE user_id = ?";
+
+        BigDecimal actual;
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                actual = rs.next() ? rs.getBigDecimal("total") : BigDecimal.ZERO;
+            }
+        }
+        return actual.compareTo(getTotal(userId)) == 0;
+    }
+
+    private static String monthStartExpression() {
+        return DatabaseUtil.getDialect().monthStart("date");
+    }
+
+    /**
+     * Collects rollup changes for one transaction and writes them with one
+     * upsert per touched (user, category, month) bucket. The individual
+     * changes are kept until commit() hands them to BudgetTracker and moves
+     * the users' data versions.
+     */
+    static class Delta {
+        private final Map<Key, Bucket> buckets = new HashMap<>();
+        private final List<BudgetTracker.SpendChange> changes = new ArrayList<>();
+        private final Set<Integer> users = new HashSet<>();
+
+        void add(int userId, int categoryId, LocalDate date, BigDecimal amount) {
+            Bucket bucket = buckets.computeIfAbsent(new Key(userId, categoryId, date.withDayOfMonth(1)), k -> new Bucket());
+            bucket.total = bucket.total.add(amount);
+            bucket.count++;
+            changes.add(new BudgetTracker.SpendChange(userId, categoryId, date, amount));
+            users.add(userId);
+        }
+
+        void remove(int userId, int categoryId, LocalDate date, BigDecimal amount) {
+            Bucket bucket = buckets.computeIfAbsent(new Key(userId, categoryId, date.withDayOfMonth(1)), k -> new Bucket());
+            bucket.total = bucket.total.subtract(amount);
+            bucket.count--;
+            changes.add(new BudgetTracker.SpendChange(userId, categoryId, date, amount.negate()));
+            users.add(userId);
+        }
+
+        boolean isEmpty() {
+            return buckets.isEmpty() && changes.isEmpty();
+        }
+
+        void clear() {
+            buckets.clear();
+            changes.clear();
+            users.clear();
+        }
+
+        // Commits the transaction that applied this delta; use instead of conn.commit()
+        void commit(Connection conn) throws SQLException {
+            BudgetTracker.commit(conn, changes);
+            changes.clear();
+            for (int userId : users) {
+                DataVersions.bump(userId);
+            }
+            users.clear();
+        }
+
+        // Must run on the connection (and inside the transaction) that wrote the expenses
+        void apply(Connection conn) throws SQLException {
+            if (buckets.isEmpty()) {
+                return;
+            }
+            String upsertSql = "INSERT INTO expense_rollups (user_id, category_id, month_start, total, txn_count) " +
+                        "VALUES (?, ?, ?, ?, ?) " +
+                        "ON DUPLICATE KEY UPDATE total = total + VALUES(total), txn_count = txn_count + VALUES(txn_count)";
+            String pruneSql = "DELETE FROM expense_rollups WHERE user_id = ? AND category_id = ? " +
+                        "AND month_start = ? AND txn_count <= 0";
+
+            boolean prune = false;
+            try (PreparedStatement upsert = conn.prepareStatement(upsertSql)) {
+                for (Map.Entry<Key, Bucket> entry : buckets.entrySet()) {
+                    Key key = entry.getKey();
+                    Bucket bucket = entry.getValue();
+                    if (bucket.count == 0 && bucket.total.signum() == 0) {
+                        continue;
+                    }
+                    upsert.setInt(1, key.userId);
+                    upsert.setInt(2, key.categoryId);
+                    upsert.setDate(3, Date.valueOf(key.monthStart));
+                    upsert.setBigDecimal(4, bucket.total);
+                    upsert.setInt(5, bucket.count);
+                    upsert.addBatch();
+                    prune |= bucket.count < 0;
+                }
+                upsert.executeBatch();
+            }
+
+            if (prune) {
+                try (PreparedStatement delete = conn.prepareStatement(pruneSql)) {
+                    for (Map.Entry<Key, Bucket> entry : buckets.entrySet()) {
+                        if (entry.getValue().count < 0) {
+                            Key key = entry.getKey();
+                            delete.setInt(1, key.userId);
+                            delete.setInt(2, key.categoryId);
+                            delete.setDate(3, Date.valueOf(key.monthStart));
+                            delete.addBatch();
+                        }
+                    }
+                    delete.executeBatch();
+                }
+            }
+            buckets.clear();
+        }
+    }
+
+    private static final class Key {
+        private final int userId;
+        private final int categoryId;
+        private final LocalDate monthStart;
+
+        Key(int userId, int categoryId, LocalDate monthStart) {
+            this.userId = userId;
+            this.categoryId = categoryId;
+            this.monthStart = monthStart;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return userId == other.userId && categoryId == other.categoryId
+                && monthStart.equals(other.monthStart);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, categoryId, monthStart);
+        }
+    }
+
+    private static final class Bucket {
+        private BigDecimal total = BigDecimal.ZERO;
+        private int count;
+    }
+}
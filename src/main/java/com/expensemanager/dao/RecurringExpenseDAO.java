@@ -3,27 +3,51 @@ package com.expensemanager.dao;
 import com.expensemanager.models.RecurringExpense;
 import com.expensemanager.utils.DatabaseUtil;
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
 
 public class RecurringExpenseDAO {
+    // Told (schedule id, next due date) whenever a schedule's due date changes; a null date means "recompute"
+    private static final List<BiConsumer<Integer, LocalDate>> nextDueListeners = new CopyOnWriteArrayList<>();
+    
+    public static void addNextDueListener(BiConsumer<Integer, LocalDate> listener) {
+        nextDueListeners.add(listener);
+    }
+    
+    public static void removeNextDueListener(BiConsumer<Integer, LocalDate> listener) {
+        nextDueListeners.remove(listener);
+    }
+    
+    private static void fireNextDueChanged(int id, LocalDate nextDueDate) {
+        for (BiConsumer<Integer, LocalDate> listener : nextDueListeners) {
+            listener.accept(id, nextDueDate);
+        }
+    }
     
     public RecurringExpense createRecurringExpense(RecurringExpense expense) throws SQLException {
         String sql = "INSERT INTO recurring_expenses (user_id, category_id, amount, description, " +
-                    "frequency, start_date, end_date, is_active) " +
-                    "SELECT ?, id, ?, ?, ?, ?, ?, ? FROM categories WHERE name = ?";
+                    "frequency, start_date, end_date, is_active, next_due_date) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        
+        int categoryId = CategoryCache.requireId(expense.getCategory());
         
         try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             
             pstmt.setInt(1, expense.getUserId());
-            pstmt.setBigDecimal(2, expense.getAmount());
-            pstmt.setString(3, expense.getDescription());
-            pstmt.setString(4, expense.getFrequency());
-            pstmt.setDate(5, Date.valueOf(expense.getStartDate()));
-            pstmt.setDate(6, Date.valueOf(expense.getEndDate()));
-            pstmt.setBoolean(7, expense.isActive());
-            pstmt.setString(8, expense.getCategory());
+            pstmt.setInt(2, categoryId);
+            pstmt.setBigDecimal(3, expense.getAmount());
+            pstmt.setString(4, expense.getDescription());
+            pstmt.setString(5, expense.getFrequency());
+            pstmt.setDate(6, Date.valueOf(expense.getStartDate()));
+            pstmt.setDate(7, Date.valueOf(expense.getEndDate()));
+            pstmt.setBoolean(8, expense.isActive());
+            pstmt.setDate(9, Date.valueOf(expense.getStartDate()));
             
             int affectedRows = pstmt.executeUpdate();
             if (affectedRows == 0) {
@@ -33,6 +57,8 @@ public class RecurringExpenseDAO {
             try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
                     expense.setId(generatedKeys.getInt(1));
+                    expense.setNextDueDate(expense.getStartDate());
+                    fireNextDueChanged(expense.getId(), expense.getNextDueDate());
                     return expense;
                 } else {
                     throw new SQLException("Creating recurring expense failed, no ID obtained.");
@@ -42,11 +68,10 @@ public class RecurringExpenseDAO {
     }
 
     public List<RecurringExpense> findByUserId(int userId) throws SQLException {
-        String sql = "SELECT r.*, c.name as category_name FROM recurring_expenses r " +
-                    "JOIN categories c ON r.category_id = c.id " +
-                    "WHERE r.user_id = ? AND r.is_active = true " +
-                    "AND r.end_date >= CURRENT_DATE " +
-                    "ORDER BY r.start_date";
+        String sql = "SELECT * FROM recurring_expenses " +
+                    "WHERE user_id = ? AND is_active = true " +
+                    "AND end_date >= CURRENT_DATE " +
+                    "ORDER BY start_date";
         
         List<RecurringExpense> expenses = new ArrayList<>();
         try (Connection conn = DatabaseUtil.getConnection();
@@ -56,18 +81,7 @@ public class RecurringExpenseDAO {
             
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    RecurringExpense expense = new RecurringExpense(
-                        rs.getInt("user_id"),
-                        rs.getString("category_name"),
-                        rs.getBigDecimal("amount"),
-                        rs.getString("description"),
-                        rs.getString("frequency"),
-                        rs.getDate("start_date").toLocalDate(),
-                        rs.getDate("end_date").toLocalDate()
-                    );
-                    expense.setId(rs.getInt("id"));
-                    expense.setActive(rs.getBoolean("is_active"));
-                    expenses.add(expense);
+                    expenses.add(mapRecurringExpense(rs));
                 }
             }
         }
@@ -75,11 +89,12 @@ public class RecurringExpenseDAO {
     }
 
     public boolean updateRecurringExpense(RecurringExpense expense) throws SQLException {
-        String sql = "UPDATE recurring_expenses r " +
+        String sql = "UPDATE recurring_expenses " +
                     "SET amount = ?, description = ?, frequency = ?, " +
-                    "start_date = ?, end_date = ?, is_active = ?, " +
-                    "category_id = (SELECT id FROM categories WHERE name = ?) " +
-                    "WHERE r.id = ? AND r.user_id = ?";
+                    "start_date = ?, end_date = ?, is_active = ?, category_id = ?, next_due_date = NULL " +
+                    "WHERE id = ? AND user_id = ?";
+        
+        int categoryId = CategoryCache.requireId(expense.getCategory());
         
         try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -90,11 +105,17 @@ public class RecurringExpenseDAO {
             pstmt.setDate(4, Date.valueOf(expense.getStartDate()));
             pstmt.setDate(5, Date.valueOf(expense.getEndDate()));
             pstmt.setBoolean(6, expense.isActive());
-            pstmt.setString(7, expense.getCategory());
+            pstmt.setInt(7, categoryId);
             pstmt.setInt(8, expense.getId());
             pstmt.setInt(9, expense.getUserId());
             
-            return pstmt.executeUpdate() > 0;
+            // Frequency or dates may have changed, so the scheduler recomputes the due date
+            boolean updated = pstmt.executeUpdate() > 0;
+            if (updated) {
+                expense.setNextDueDate(null);
+                fireNextDueChanged(expense.getId(), null);
+            }
+            return updated;
         }
     }
 
@@ -112,38 +133,119 @@ public class RecurringExpenseDAO {
         }
     }
 
-    public List<RecurringExpense> findDueExpenses() throws SQLException {
-        String sql = "SELECT r.*, c.name as category_name FROM recurring_expenses r " +
-                    "JOIN categories c ON r.category_id = c.id " +
-                    "WHERE r.is_active = true " +
-                    "AND r.end_date >= CURRENT_DATE " +
-                    "AND NOT EXISTS (" +
-                    "    SELECT 1 FROM expenses e " +
-                    "    WHERE e.recurring_expense_id = r.id " +
-                    "    AND DATE(e.date) = CURRENT_DATE" +
-                    ")";
+    /**
+     * Active schedules with an occurrence due on or before the given day.
+     * A range scan on idx_active_next_due, so it costs the number of due
+     * schedules rather than the number of schedules.
+     */
+    public List<RecurringExpense> findDueSchedules(LocalDate today) throws SQLException {
+        String sql = "SELECT * FROM recurring_expenses " +
+                    "WHERE is_active = true AND next_due_date <= ? AND next_due_date <= end_date";
         
         List<RecurringExpense> expenses = new ArrayList<>();
         try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
+            pstmt.setDate(1, Date.valueOf(today));
+            pstmt.setFetchSize(1000);
+            
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    RecurringExpense expense = new RecurringExpense(
-                        rs.getInt("user_id"),
-                        rs.getString("category_name"),
-                        rs.getBigDecimal("amount"),
-                        rs.getString("description"),
-                        rs.getString("frequency"),
-                        rs.getDate("start_date").toLocalDate(),
-                        rs.getDate("end_date").toLocalDate()
-                    );
-                    expense.setId(rs.getInt("id"));
-                    expense.setActive(rs.getBoolean("is_active"));
+                    expenses.add(mapRecurringExpense(rs));
+                }
+            }
+        }
+        return expenses;
+    }
+
+    /**
+     * Active schedules whose next_due_date has not been computed yet (new
+     * column on an old database, or an edited schedule), each with the date
+     * of the latest expense already generated from it.
+     */
+    public List<RecurringExpense> findSchedulesWithoutDueDate() throws SQLException {
+        String sql = "SELECT r.*, g.last_date FROM recurring_expenses r " +
+                    "LEFT JOIN (" +
+                    "    SELECT recurring_expense_id, MAX(date) as last_date FROM expenses " +
+                    "    WHERE recurring_expense_id IS NOT NULL GROUP BY recurring_expense_id" +
+                    ") g ON g.recurring_expense_id = r.id " +
+                    "WHERE r.is_active = true AND r.next_due_date IS NULL";
+        
+        List<RecurringExpense> expenses = new ArrayList<>();
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setFetchSize(1000);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    RecurringExpense expense = mapRecurringExpense(rs);
+                    Date lastDate = rs.getDate("last_date");
+                    expense.setLastGeneratedDate(lastDate != null ? lastDate.toLocalDate() : null);
                     expenses.add(expense);
                 }
             }
         }
         return expenses;
     }
-} 
\ No newline at end of file
+
+    // Upcoming due date of every active schedule that still has occurrences left
+    public Map<Integer, LocalDate> findNextDueDates() throws SQLException {
+        String sql = "SELECT id, next_due_date FROM recurring_expenses " +
+                    "WHERE is_active = true AND next_due_date <= end_date";
+        
+        Map<Integer, LocalDate> dueDates = new HashMap<>();
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setFetchSize(1000);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    dueDates.put(rs.getInt(1), rs.getDate(2).toLocalDate());
+                }
+            }
+        }
+        return dueDates;
+    }
+
+    public void updateNextDueDates(Map<Integer, LocalDate> nextDueDates) throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            updateNextDueDates(conn, nextDueDates);
+        }
+    }
+
+    // Runs on the caller's connection so the update can share a transaction with the generated expenses
+    static void updateNextDueDates(Connection conn, Map<Integer, LocalDate> nextDueDates) throws SQLException {
+        if (nextDueDates.isEmpty()) {
+            return;
+        }
+        String sql = "UPDATE recurring_expenses SET next_due_date = ? WHERE id = ?";
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (Map.Entry<Integer, LocalDate> entry : nextDueDates.entrySet()) {
+                pstmt.setDate(1, Date.valueOf(entry.getValue()));
+                pstmt.setInt(2, entry.getKey());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    private RecurringExpense mapRecurringExpense(ResultSet rs) throws SQLException {
+        RecurringExpense expense = new RecurringExpense(
+            rs.getInt("user_id"),
+            CategoryCache.getName(rs.getInt("category_id")),
+            rs.getBigDecimal("amount"),
+            rs.getString("description"),
+            rs.getString("frequency"),
+            rs.getDate("start_date").toLocalDate(),
+            rs.getDate("end_date").toLocalDate()
+        );
+        expense.setId(rs.getInt("id"));
+        expense.setActive(rs.getBoolean("is_active"));
+        Date nextDueDate = rs.getDate("next_due_date");
+        expense.setNextDueDate(nextDueDate != null ? nextDueDate.toLocalDate() : null);
+        return expense;
+    }
+}
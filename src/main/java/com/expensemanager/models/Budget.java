@@ -10,6 +10,7 @@ public class Budget {
     private BigDecimal amount;
     private LocalDate startDate;
     private LocalDate endDate;
+    private BigDecimal spent = BigDecimal.ZERO; // Expenses in this budget's category and date range
 
     public Budget() {}
 
@@ -39,4 +40,30 @@ public class Budget {
     
     public LocalDate getEndDate() { return endDate; }
     public void setEndDate(LocalDate endDate) { this.endDate = endDate; }
+    
+    public BigDecimal getSpent() { return spent; }
+    public void setSpent(BigDecimal spent) { this.spent = spent; }
+    
+    public BigDecimal getRemaining() {
+        return amount.subtract(spent);
+    }
+    
+    // Share of the budget used so far, as a percentage
+    public double getPercentUsed() {
+        if (amount.signum() <= 0) {
+            return spent.signum() > 0 ? 100 : 0;
+        }
+        return spent.doubleValue() * 100 / amount.doubleValue();
+    }
+    
+    public boolean covers(LocalDate date) {
+        return !date.isBefore(startDate) && !date.isAfter(endDate);
+    }
+    
+    public Budget copy() {
+        Budget copy = new Budget(userId, category, amount, startDate, endDate);
+        copy.setId(id);
+        copy.setSpent(spent);
+        return copy;
+    }
 } 
\ No newline at end of file
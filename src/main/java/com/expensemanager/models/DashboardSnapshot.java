@@ -0,0 +1,45 @@
+package com.expensemanager.models;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+public class DashboardSnapshot {
+    private final BigDecimal totalExpenses;
+    private final BigDecimal monthlyAverage;
+    private final String topCategory;
+    private final BigDecimal currentMonthTotal;
+    private final BigDecimal previousMonthTotal;
+    private final Map<String, BigDecimal> categoryTotals;
+    private final List<Expense> recentExpenses;
+
+    public DashboardSnapshot(BigDecimal totalExpenses, BigDecimal monthlyAverage, String topCategory,
+                             BigDecimal currentMonthTotal, BigDecimal previousMonthTotal,
+                             Map<String, BigDecimal> categoryTotals, List<Expense> recentExpenses) {
+        this.totalExpenses = totalExpenses;
+        this.monthlyAverage = monthlyAverage;
+        this.topCategory = topCategory;
+        this.currentMonthTotal = currentMonthTotal;
+        this.previousMonthTotal = previousMonthTotal;
+        this.categoryTotals = categoryTotals;
+        this.recentExpenses = recentExpenses;
+    }
+
+    // Getters
+    public BigDecimal getTotalExpenses() { return totalExpenses; }
+    public BigDecimal getMonthlyAverage() { return monthlyAverage; }
+    public String getTopCategory() { return topCategory; }
+    public BigDecimal getCurrentMonthTotal() { return currentMonthTotal; }
+    public BigDecimal getPreviousMonthTotal() { return previousMonthTotal; }
+    public Map<String, BigDecimal> getCategoryTotals() { return categoryTotals; }
+    public List<Expense> getRecentExpenses() { return recentExpenses; }
+
+    // Month-over-month change in percent, or null when there is no previous month to compare with
+    public Double getMonthOverMonthChange() {
+        if (previousMonthTotal == null || previousMonthTotal.signum() == 0) {
+            return null;
+        }
+        return currentMonthTotal.subtract(previousMonthTotal).doubleValue()
+            / previousMonthTotal.doubleValue() * 100.0;
+    }
+}
@@ -11,6 +11,7 @@ public class Expense {
     private String categoryName; // For display purposes
     private LocalDate date;
     private String description;
+    private Integer recurringExpenseId; // Set when generated from a recurring expense
 
     public Expense() {}
 
@@ -88,4 +89,12 @@ public class Expense {
     public void setDescription(String description) {
         this.description = description;
     }
+
+    public Integer getRecurringExpenseId() {
+        return recurringExpenseId;
+    }
+
+    public void setRecurringExpenseId(Integer recurringExpenseId) {
+        this.recurringExpenseId = recurringExpenseId;
+    }
 } 
\ No newline at end of file
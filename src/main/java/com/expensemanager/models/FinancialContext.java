@@ -0,0 +1,149 @@
+package com.expensemanager.models;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.format.TextStyle;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A summary of a user's finances for the AI chat: totals, the monthly trend,
+ * top categories and merchants, budget status and anything unusual. It is
+ * built once per data version and rendered by toPrompt() as a few short
+ * lines with whole amounts, which costs far fewer tokens than the raw maps.
+ */
+public class FinancialContext {
+    private final LocalDate asOf;
+    private final long dataVersion;
+    private final BigDecimal totalExpenses;
+    private final long expenseCount;
+    private final BigDecimal monthToDateTotal;
+    private final Map<LocalDate, BigDecimal> monthlyTotals;
+    private final Map<String, BigDecimal> categoriesThisMonth;
+    private final Map<String, BigDecimal> categoriesOverall;
+    private final List<Merchant> topMerchants;
+    private final int merchantDays;
+    private final List<Budget> activeBudgets;
+    private final List<String> anomalies;
+    private final String prompt;
+
+    /**
+     * The category maps may hold only the largest categories; their shares
+     * are taken of totalExpenses and monthToDateTotal, not of the maps' sums.
+     */
+    public FinancialContext(LocalDate asOf, long dataVersion, BigDecimal totalExpenses, long expenseCount,
+                            BigDecimal monthToDateTotal, Map<LocalDate, BigDecimal> monthlyTotals, Map<String, BigDecimal> categoriesThisMonth,
+                            Map<String, BigDecimal> categoriesOverall, List<Merchant> topMerchants, int merchantDays,
+                            List<Budget> activeBudgets, List<String> anomalies) {
+        this.asOf = asOf;
+        this.dataVersion = dataVersion;
+        this.totalExpenses = totalExpenses;
+        this.expenseCount = expenseCount;
+        this.monthToDateTotal = monthToDateTotal;
+        this.monthlyTotals = monthlyTotals;
+        this.categoriesThisMonth = categoriesThisMonth;
+        this.categoriesOverall = categoriesOverall;
+        this.topMerchants = topMerchants;
+        this.merchantDays = merchantDays;
+        this.activeBudgets = activeBudgets;
+        this.anomalies = anomalies;
+        this.prompt = render();
+    }
+
+    // Getters
+    public LocalDate getAsOf() { return asOf; }
+    public long getDataVersion() { return dataVersion; }
+    public BigDecimal getTotalExpenses() { return totalExpenses; }
+    public long getExpenseCount() { return expenseCount; }
+    public BigDecimal getMonthToDateTotal() { return monthToDateTotal; }
+    public Map<LocalDate, BigDecimal> getMonthlyTotals() { return monthlyTotals; }
+    public Map<String, BigDecimal> getCategoriesThisMonth() { return categoriesThisMonth; }
+    public Map<String, BigDecimal> getCategoriesOverall() { return categoriesOverall; }
+    public List<Merchant> getTopMerchants() { return topMerchants; }
+    public List<Budget> getActiveBudgets() { return activeBudgets; }
+    public List<String> getAnomalies() { return anomalies; }
+
+    // Rendered once, since the same context is sent with every chat turn
+    public String toPrompt() {
+        return prompt;
+    }
+
+    private String render() {
+        StringBuilder text = new StringBuilder("Finances as of ").append(asOf).append(", amounts in $:\n");
+        text.append("Total ").append(whole(totalExpenses)).append(" over ").append(expenseCount).append(" expenses\n");
+
+        if (!monthlyTotals.isEmpty()) {
+            text.append("Monthly:");
+            for (Map.Entry<LocalDate, BigDecimal> month : monthlyTotals.entrySet()) {
+                text.append(' ').append(month.getKey().getMonth().getDisplayName(TextStyle.SHORT, Locale.ENGLISH))
+                    .append(' ').append(whole(month.getValue())).append(',');
+            }
+            text.setLength(text.length() - 1);
+            text.append(" (last is month to date)\n");
+        }
+        appendShares(text, "Categories this month", categoriesThisMonth, monthToDateTotal);
+        appendShares(text, "Categories overall", categoriesOverall, totalExpenses);
+
+        if (!topMerchants.isEmpty()) {
+            text.append("Top merchants, last ").append(merchantDays).append(" days:");
+            for (Merchant merchant : topMerchants) {
+                text.append(' ').append(merchant.getName()).append(' ').append(whole(merchant.getTotal()))
+                    .append(" x").append(merchant.getCount()).append(',');
+            }
+            text.setLength(text.length() - 1);
+            text.append('\n');
+        }
+        if (!activeBudgets.isEmpty()) {
+            text.append("Budgets:");
+            for (Budget budget : activeBudgets) {
+                text.append(' ').append(budget.getCategory()).append(' ').append(whole(budget.getSpent()))
+                    .append('/').append(whole(budget.getAmount()))
+                    .append(String.format(" (%.0f%%)", budget.getPercentUsed())).append(',');
+            }
+            text.setLength(text.length() - 1);
+            text.append('\n');
+        }
+        if (!anomalies.isEmpty()) {
+            text.append("Unusual: ").append(String.join("; ", anomalies)).append('\n');
+        }
+        return text.toString();
+    }
+
+    // Shares of the whole, which the listed categories may not add up to
+    private static void appendShares(StringBuilder text, String label, Map<String, BigDecimal> totals, BigDecimal whole) {
+        if (totals.isEmpty() || whole.signum() <= 0) {
+            return;
+        }
+        text.append(label).append(':');
+        for (Map.Entry<String, BigDecimal> entry : totals.entrySet()) {
+            text.append(' ').append(entry.getKey()).append(' ').append(whole(entry.getValue()))
+                .append(" (").append(entry.getValue().multiply(BigDecimal.valueOf(100)).divide(whole, 0, RoundingMode.HALF_UP))
+                .append("%),");
+        }
+        text.setLength(text.length() - 1);
+        text.append('\n');
+    }
+
+    // Whole units; cents add tokens without changing any answer
+    public static String whole(BigDecimal amount) {
+        return amount.setScale(0, RoundingMode.HALF_UP).toPlainString();
+    }
+
+    public static class Merchant {
+        private final String name;
+        private final BigDecimal total;
+        private final int count;
+
+        public Merchant(String name, BigDecimal total, int count) {
+            this.name = name;
+            this.total = total;
+            this.count = count;
+        }
+
+        public String getName() { return name; }
+        public BigDecimal getTotal() { return total; }
+        public int getCount() { return count; }
+    }
+}
@@ -2,6 +2,7 @@ package com.expensemanager.models;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 
 public class RecurringExpense {
     private int id;
@@ -13,6 +14,8 @@ public class RecurringExpense {
     private LocalDate startDate;
     private LocalDate endDate;
     private boolean isActive;
+    private LocalDate nextDueDate; // Next occurrence not yet generated; null until the scheduler computes it
+    private LocalDate lastGeneratedDate; // Date of the latest expense generated from this schedule
 
     public RecurringExpense() {}
 
@@ -56,4 +59,47 @@ public class RecurringExpense {
     
     public boolean isActive() { return isActive; }
     public void setActive(boolean active) { isActive = active; }
+    
+    public LocalDate getNextDueDate() { return nextDueDate; }
+    public void setNextDueDate(LocalDate nextDueDate) { this.nextDueDate = nextDueDate; }
+    
+    public LocalDate getLastGeneratedDate() { return lastGeneratedDate; }
+    public void setLastGeneratedDate(LocalDate lastGeneratedDate) { this.lastGeneratedDate = lastGeneratedDate; }
+    
+    // Step between occurrences, or null if the frequency is not recognised
+    public ChronoUnit getFrequencyUnit() {
+        if (frequency == null) {
+            return null;
+        }
+        switch (frequency.trim().toUpperCase()) {
+            case "DAILY": return ChronoUnit.DAYS;
+            case "WEEKLY": return ChronoUnit.WEEKS;
+            case "MONTHLY": return ChronoUnit.MONTHS;
+            case "YEARLY": return ChronoUnit.YEARS;
+            default: return null;
+        }
+    }
+    
+    /**
+     * The nth occurrence, counting the start date as 0. Dates are always
+     * computed from the start date, so a schedule starting on the 31st falls
+     * on the last day of shorter months without drifting.
+     */
+    public LocalDate getOccurrence(long n) {
+        return startDate.plus(n, getFrequencyUnit());
+    }
+    
+    /**
+     * Index of the first occurrence strictly after the given date.
+     */
+    public long getOccurrenceIndexAfter(LocalDate date) {
+        if (date.isBefore(startDate)) {
+            return 0;
+        }
+        long n = getFrequencyUnit().between(startDate, date);
+        while (!getOccurrence(n).isAfter(date)) {
+            n++;
+        }
+        return n;
+    }
 } 
\ No newline at end of file
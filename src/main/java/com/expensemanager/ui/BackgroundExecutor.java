@@ -0,0 +1,218 @@
+package com.expensemanager.ui;
+
+import javax.swing.SwingUtilities;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs the UI's blocking work (JDBC queries, AI requests, file import and
+ * export) off the EDT and hands the results back to it. On JDK 21 and later
+ * every task gets its own virtual thread, so a slow query or a streaming chat
+ * answer never holds up anything else; on older JDKs tasks share a pool of
+ * daemon platform threads, larger than SwingWorker's ten.
+ *
+ * Work is started through a Scope, usually one per window or panel. Closing
+ * the scope interrupts its running tasks and drops their callbacks, so
+ * nothing touches a view after it is gone. Progress, success and error
+ * callbacks all run on the EDT.
+ */
+final class BackgroundExecutor {
+    // Platform threads used when virtual threads aren't available
+    private static final int MAX_PLATFORM_THREADS = 32;
+
+    private static final ExecutorService executor = createExecutor();
+    // For work that belongs to no particular view
+    private static final Scope sharedScope = new Scope();
+
+    private BackgroundExecutor() {}
+
+    interface Task<T> {
+        T call() throws Exception;
+    }
+
+    interface ProgressTask<T, P> {
+        // The task may publish any number of chunks; they reach the EDT in batches
+        T call(Consumer<P> publish) throws Exception;
+    }
+
+    static Scope newScope() {
+        return new Scope();
+    }
+
+    static <T> Job run(Task<T> task, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        return sharedScope.run(task, onSuccess, onError);
+    }
+
+    static boolean usesVirtualThreads() {
+        return !(executor instanceof ThreadPoolExecutor);
+    }
+
+    private static ExecutorService createExecutor() {
+        if (Runtime.version().feature() >= 21) {
+            // Looked up reflectively so the code still compiles for the Java 11 target
+            try {
+                Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (ExecutorService) factory.invoke(null);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                System.err.println("Virtual threads unavailable, using platform threads: " + e);
+            }
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(MAX_PLATFORM_THREADS, MAX_PLATFORM_THREADS,
+            60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                Thread t = new Thread(r, "background-" + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * The tasks started for one view.
+     */
+    static final class Scope {
+        private final Set<Job> jobs = ConcurrentHashMap.newKeySet();
+        private volatile boolean closed;
+
+        <T> Job run(Task<T> task, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+            return run(publish -> task.call(), null, onSuccess, onError);
+        }
+
+        /**
+         * Starts the task. onProgress gets the chunks published since its last
+         * call; then exactly one of onSuccess and onError runs, unless the job
+         * or the scope is cancelled first. onError gets the task's own
+         * exception, not a wrapper.
+         */
+        <T, P> Job run(ProgressTask<T, P> task, Consumer<List<P>> onProgress,
+                       Consumer<T> onSuccess, Consumer<Throwable> onError) {
+            Job job = new Job(this);
+            if (closed) {
+                job.cancelled = true;
+                return job;
+            }
+            jobs.add(job);
+            Consumer<P> publish = onProgress != null ? new ProgressBatch<>(job, onProgress)::publish : chunk -> {};
+            job.future = executor.submit(() -> {
+                T result = null;
+                Throwable error = null;
+                try {
+                    if (!job.isCancelled()) {
+                        result = task.call(publish);
+                    }
+                } catch (Throwable e) {
+                    error = e;
+                } finally {
+                    jobs.remove(job);
+                }
+                T value = result;
+                Throwable failure = error;
+                onEdt(job, () -> {
+                    if (failure != null) {
+                        onError.accept(failure);
+                    } else {
+                        onSuccess.accept(value);
+                    }
+                });
+            });
+            // Cancelled while being submitted
+            if (job.isCancelled()) {
+                job.future.cancel(true);
+            }
+            return job;
+        }
+
+        // Interrupts the scope's running tasks; none of their callbacks will run
+        void close() {
+            closed = true;
+            for (Job job : jobs) {
+                job.cancel();
+            }
+        }
+
+        boolean isClosed() {
+            return closed;
+        }
+
+        // The one place results cross back to the EDT
+        private void onEdt(Job job, Runnable callback) {
+            SwingUtilities.invokeLater(() -> {
+                if (!job.isCancelled() && !closed) {
+                    callback.run();
+                }
+            });
+        }
+    }
+
+    static final class Job {
+        private final Scope scope;
+        private volatile Future<?> future;
+        private volatile boolean cancelled;
+
+        private Job(Scope scope) {
+            this.scope = scope;
+        }
+
+        void cancel() {
+            cancelled = true;
+            Future<?> running = future;
+            if (running != null) {
+                running.cancel(true);
+            }
+            scope.jobs.remove(this);
+        }
+
+        boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    /**
+     * Collects published chunks and delivers them with a single EDT event,
+     * however many arrive before it runs.
+     */
+    private static final class ProgressBatch<P> {
+        private final Job job;
+        private final Consumer<List<P>> onProgress;
+        private List<P> chunks = new ArrayList<>();
+        private boolean scheduled;
+
+        ProgressBatch(Job job, Consumer<List<P>> onProgress) {
+            this.job = job;
+            this.onProgress = onProgress;
+        }
+
+        void publish(P chunk) {
+            synchronized (this) {
+                chunks.add(chunk);
+                if (scheduled) {
+                    return;
+                }
+                scheduled = true;
+            }
+            job.scope.onEdt(job, this::deliver);
+        }
+
+        private void deliver() {
+            List<P> batch;
+            synchronized (this) {
+                batch = chunks;
+                chunks = new ArrayList<>();
+                scheduled = false;
+            }
+            onProgress.accept(batch);
+        }
+    }
+}
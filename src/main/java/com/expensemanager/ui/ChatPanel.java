@@ -1,6 +1,7 @@
 package com.expensemanager.ui;
 
 import com.expensemanager.utils.AIChatService;
+import com.expensemanager.utils.ChatSessions;
 import javax.swing.*;
 import javax.swing.border.*;
 import java.awt.*;
@@ -8,7 +9,6 @@ import java.awt.event.*;
 import java.util.ResourceBundle;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
 
 public class ChatPanel extends JPanel {
     private static final Color BACKGROUND_COLOR = new Color(245, 245, 250);
@@ -22,11 +22,13 @@ public class ChatPanel extends JPanel {
     private static final int BORDER_RADIUS = 10;
 
     private final ResourceBundle messages;
-    private final AIChatService chatService;
+    private final int userId;
+    private final String apiKey;
     private Map<String, Object> dashboardData;
     private JTextField inputField;
     private JPanel messagesPanel;
     private JScrollPane scrollPane;
+    private BackgroundExecutor.Scope backgroundJobs = BackgroundExecutor.newScope();
 
     // Inner class for rounded borders
     private static class RoundedBorder extends AbstractBorder {
@@ -58,10 +60,13 @@ public class ChatPanel extends JPanel {
         }
     }
 
-    public ChatPanel(ResourceBundle messages, String apiKey) {
+    public ChatPanel(ResourceBundle messages, int userId, String apiKey) {
         this.messages = messages;
+        this.userId = userId;
+        this.apiKey = apiKey;
         try {
-            this.chatService = new AIChatService(apiKey);
+            // The user's session service, so this panel shares their conversation history
+            ChatSessions.get(userId, apiKey);
         } catch (IllegalArgumentException e) {
             JOptionPane.showMessageDialog(this,
                 "Error initializing AI Chat: " + e.getMessage(),
@@ -127,33 +132,42 @@ public class ChatPanel extends JPanel {
         addMessage(message, true);
         inputField.setText("");
 
-        // Process with AI in background
-        SwingWorker<String, Void> worker = new SwingWorker<String, Void>() {
-            @Override
-            protected String doInBackground() throws Exception {
-                try {
-                    return chatService.processQuestion(message, dashboardData);
-                } catch (Exception e) {
-                    return "Error: " + e.getMessage();
+        // Stream the answer into an empty bubble; the progress callback gets the
+        // tokens published since the last repaint, so bursts cost one layout pass
+        JTextArea answerArea = addMessage("", false);
+        AIChatService chatService = ChatSessions.get(userId, apiKey);
+        backgroundJobs.<String, String>run(
+            publish -> chatService.streamQuestion(message, dashboardData, publish::accept),
+            tokens -> {
+                for (String token : tokens) {
+                    answerArea.append(token);
                 }
-            }
-
-            @Override
-            protected void done() {
-                try {
-                    String response = get();
-                    addMessage(response, false);
-                } catch (ExecutionException e) {
-                    addMessage("Error processing request: " + e.getMessage(), false);
-                } catch (Exception e) {
-                    addMessage("Error processing request: " + e.getMessage(), false);
+                showLatest();
+            },
+            answer -> {
+                // Replaces whatever was streamed with the complete answer
+                answerArea.setText(answer);
+                long ttft = chatService.getLastTimeToFirstTokenMillis();
+                if (ttft >= 0) {
+                    answerArea.setToolTipText("First token after " + ttft + " ms");
                 }
-            }
-        };
-        worker.execute();
+                showLatest();
+            },
+            e -> {
+                answerArea.setText("Error processing request: " + e.getMessage());
+                showLatest();
+            });
     }
 
-    private void addMessage(String message, boolean isUser) {
+    // A request still running when the panel goes away is cancelled, not left to finish unseen
+    @Override
+    public void removeNotify() {
+        backgroundJobs.close();
+        backgroundJobs = BackgroundExecutor.newScope();
+        super.removeNotify();
+    }
+
+    private JTextArea addMessage(String message, boolean isUser) {
         JPanel bubblePanel = new JPanel();
         bubblePanel.setLayout(new BorderLayout());
         bubblePanel.setBackground(BACKGROUND_COLOR);
@@ -175,7 +189,12 @@ public class ChatPanel extends JPanel {
         bubblePanel.add(wrapper, isUser ? BorderLayout.EAST : BorderLayout.WEST);
         messagesPanel.add(bubblePanel);
 
-        // Ensure the latest message is visible
+        showLatest();
+        return textArea;
+    }
+
+    // Ensure the latest message is visible
+    private void showLatest() {
         messagesPanel.revalidate();
         SwingUtilities.invokeLater(() -> {
             JScrollBar vertical = scrollPane.getVerticalScrollBar();
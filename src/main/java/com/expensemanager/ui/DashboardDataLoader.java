@@ -0,0 +1,78 @@
+package com.expensemanager.ui;
+
+import com.expensemanager.dao.ExpenseDAO;
+import com.expensemanager.models.DashboardSnapshot;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Loads the dashboard snapshot off the EDT. Refresh requests that arrive while
+ * a load is running are coalesced into a single follow-up load. Results are
+ * delivered on the EDT.
+ */
+class DashboardDataLoader {
+    private static final int RECENT_LIMIT = 10;
+
+    private final ExpenseDAO expenseDAO;
+    private final int userId;
+    private final Consumer<DashboardSnapshot> onLoaded;
+    private final Consumer<Throwable> onError;
+    private final BackgroundExecutor.Scope jobs = BackgroundExecutor.newScope();
+
+    private final AtomicBoolean loading = new AtomicBoolean();
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private volatile boolean shutdown;
+
+    DashboardDataLoader(ExpenseDAO expenseDAO, int userId,
+                        Consumer<DashboardSnapshot> onLoaded, Consumer<Throwable> onError) {
+        this.expenseDAO = expenseDAO;
+        this.userId = userId;
+        this.onLoaded = onLoaded;
+        this.onError = onError;
+    }
+
+    /**
+     * Asks for fresh data. Safe to call from any thread and as often as needed.
+     */
+    void requestRefresh() {
+        if (shutdown) {
+            return;
+        }
+        pending.set(true);
+        if (loading.compareAndSet(false, true)) {
+            startLoad();
+        }
+    }
+
+    void shutdown() {
+        shutdown = true;
+        jobs.close();
+    }
+
+    private void startLoad() {
+        pending.set(false);
+        jobs.run(() -> expenseDAO.getDashboardSnapshot(userId, RECENT_LIMIT),
+            snapshot -> {
+                try {
+                    onLoaded.accept(snapshot);
+                } finally {
+                    loadFinished();
+                }
+            },
+            error -> {
+                try {
+                    onError.accept(error);
+                } finally {
+                    loadFinished();
+                }
+            });
+    }
+
+    private void loadFinished() {
+        loading.set(false);
+        // Anything requested while we were loading gets one more load
+        if (pending.get() && !shutdown && loading.compareAndSet(false, true)) {
+            startLoad();
+        }
+    }
+}
@@ -1,10 +1,20 @@
 package com.expensemanager.ui;
 
 import com.expensemanager.models.User;
+import com.expensemanager.models.Budget;
+import com.expensemanager.models.DashboardSnapshot;
 import com.expensemanager.models.Expense;
+import com.expensemanager.models.FinancialContext;
+import com.expensemanager.dao.BudgetTracker;
 import com.expensemanager.dao.ExpenseDAO;
 import com.expensemanager.utils.ConfigManager;
 import com.expensemanager.utils.AIChatService;
+import com.expensemanager.utils.ChatSessions;
+import com.expensemanager.utils.ExpenseExporter;
+import com.expensemanager.utils.FinancialContextCache;
+import com.expensemanager.utils.ImportProfile;
+import com.expensemanager.utils.InsightEngine;
+import com.expensemanager.utils.StatementImporter;
 import com.formdev.flatlaf.FlatLightLaf;
 import com.formdev.flatlaf.FlatDarkLaf;
 import org.jfree.chart.ChartFactory;
@@ -16,14 +26,17 @@ import javax.swing.Timer;
 import javax.swing.border.*;
 import javax.swing.event.*;
 import javax.swing.table.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
 import java.awt.event.*;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.Objects;
 import java.util.ResourceBundle;
 import java.util.Locale;
 import java.sql.SQLException;
@@ -38,13 +51,16 @@ import javax.swing.text.Document;
 import java.text.SimpleDateFormat;
 import javax.swing.JScrollBar;
 import javax.swing.BoxLayout;
-import javax.swing.SwingWorker;
 import java.awt.FontMetrics;
 import java.io.File;
+import java.nio.file.Path;
 
 public class DashboardFrame extends JFrame {
     private final User currentUser;
     private final ExpenseDAO expenseDAO;
+    private final InsightEngine insightEngine;
+    // Background work for this window, cancelled when it closes
+    private final BackgroundExecutor.Scope backgroundJobs = BackgroundExecutor.newScope();
     private ResourceBundle messages;
     private boolean isDarkTheme = false;
 
@@ -53,6 +69,15 @@ public class DashboardFrame extends JFrame {
     private JPanel sidebarPanel;
     private JPanel contentPanel;
     private CardLayout contentLayout;
+    private ExpenseTableModel expenseTableModel;
+
+    // Dashboard widgets updated in place by the data loader
+    private DashboardDataLoader dashboardLoader;
+    private StatCard totalExpensesCard;
+    private StatCard monthlyAverageCard;
+    private StatCard topCategoryCard;
+    private DefaultPieDataset<String> categoryDataset;
+    private DefaultTableModel recentTransactionsModel;
 
     // Theme Colors - Light
     private static final Color PRIMARY_LIGHT = Color.WHITE;
@@ -161,6 +186,7 @@ public class DashboardFrame extends JFrame {
     public DashboardFrame(User user) {
         this.currentUser = user;
         this.expenseDAO = new ExpenseDAO();
+        this.insightEngine = new InsightEngine(expenseDAO);
         this.messages = ResourceBundle.getBundle("messages", Locale.getDefault());
         
         // Set system property for UTF-8 encoding
@@ -170,6 +196,44 @@ public class DashboardFrame extends JFrame {
         initializeComponents();
         setupAnimations();
         setVisible(true);
+
+        dashboardLoader = new DashboardDataLoader(expenseDAO, currentUser.getId(),
+            this::applyDashboardData, this::handleDashboardError);
+        BudgetTracker.addThresholdListener(budgetAlertListener);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                backgroundJobs.close();
+                dashboardLoader.shutdown();
+                BudgetTracker.removeThresholdListener(budgetAlertListener);
+                ChatSessions.close(currentUser.getId());
+            }
+        });
+        dashboardLoader.requestRefresh();
+        ChatSessions.open(currentUser.getId(), ConfigManager.getOpenAIKey());
+        trackBudgets();
+    }
+
+    private final BudgetTracker.ThresholdListener budgetAlertListener = this::showBudgetAlert;
+
+    private void showBudgetAlert(Budget budget, int percent) {
+        if (budget.getUserId() != currentUser.getId()) {
+            return;
+        }
+        String message = percent >= 100
+            ? String.format("You have used up your %s budget ($%,.2f of $%,.2f).",
+                budget.getCategory(), budget.getSpent(), budget.getAmount())
+            : String.format("You have used %d%% of your %s budget ($%,.2f left).",
+                percent, budget.getCategory(), budget.getRemaining());
+        SwingUtilities.invokeLater(() ->
+            JOptionPane.showMessageDialog(this, message, "Budget Alert", JOptionPane.WARNING_MESSAGE));
+    }
+
+    // Loads this user's budget counters off the EDT so threshold alerts fire from the first expense on
+    private void trackBudgets() {
+        backgroundJobs.run(() -> BudgetTracker.getBudgets(currentUser.getId()),
+            budgets -> {},
+            e -> System.err.println("Error loading budgets: " + e.getMessage()));
     }
 
     private Font getIconFont() {
@@ -372,9 +436,9 @@ public class DashboardFrame extends JFrame {
         // Quick Stats Panel
         JPanel statsPanel = new JPanel(new GridLayout(1, 3, 20, 0));
         statsPanel.setBackground(secondaryColor);
-        addStatCard("Total Expenses", "$2,450", "📈 +15%", statsPanel);
-        addStatCard("Monthly Average", "$820", "📊", statsPanel);
-        addStatCard("Top Category", "Food & Dining", "🍽", statsPanel);
+        totalExpensesCard = addStatCard("Total Expenses", "...", "", statsPanel);
+        monthlyAverageCard = addStatCard("Monthly Average", "...", "📊", statsPanel);
+        topCategoryCard = addStatCard("Top Category", "...", "", statsPanel);
 
         // Charts Panel
         JPanel chartsPanel = new JPanel(new GridLayout(1, 2, 20, 0));
@@ -421,7 +485,7 @@ public class DashboardFrame extends JFrame {
         return headerPanel;
     }
 
-    private void addStatCard(String title, String value, String trend, JPanel container) {
+    private StatCard addStatCard(String title, String value, String trend, JPanel container) {
         JPanel card = new JPanel(new BorderLayout(10, 5));
         card.setBackground(isDarkTheme ? SECONDARY_DARK : SECONDARY_LIGHT);
         card.setBorder(BorderFactory.createCompoundBorder(
@@ -437,37 +501,76 @@ public class DashboardFrame extends JFrame {
         valueLabel.setFont(TITLE_FONT);
         valueLabel.setForeground(accentColor);
 
+        JLabel trendLabel = new JLabel(trend);
+        trendLabel.setFont(REGULAR_FONT);
+        trendLabel.setForeground(new Color(128, 128, 128));
+
         JPanel valuePanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 0));
         valuePanel.setBackground(isDarkTheme ? SECONDARY_DARK : SECONDARY_LIGHT);
         valuePanel.add(valueLabel);
+        valuePanel.add(trendLabel);
 
         card.add(titleLabel, BorderLayout.NORTH);
         card.add(valuePanel, BorderLayout.CENTER);
 
         container.add(card);
+        return new StatCard(valueLabel, trendLabel);
     }
 
-    private void addExpenseChart(JPanel container) {
-        DefaultPieDataset<String> dataset = new DefaultPieDataset<>();
-        
-        try {
-            // Get real expense data
-            Map<String, BigDecimal> categoryTotals = expenseDAO.getExpensesByCategory(currentUser.getId());
-            categoryTotals.forEach((category, amount) -> 
-                dataset.setValue(category, amount.doubleValue())
-            );
-        } catch (SQLException e) {
-            e.printStackTrace();
-            // Add sample data as fallback
-            dataset.setValue("Food", 35);
-            dataset.setValue("Transport", 25);
-            dataset.setValue("Shopping", 20);
-            dataset.setValue("Others", 20);
+    // Labels of a stat card that change when the dashboard is refreshed
+    private static class StatCard {
+        private final JLabel valueLabel;
+        private final JLabel trendLabel;
+
+        StatCard(JLabel valueLabel, JLabel trendLabel) {
+            this.valueLabel = valueLabel;
+            this.trendLabel = trendLabel;
         }
 
+        void update(String value, String trend) {
+            if (!value.equals(valueLabel.getText())) {
+                valueLabel.setText(value);
+            }
+            if (!trend.equals(trendLabel.getText())) {
+                trendLabel.setText(trend);
+            }
+        }
+    }
+
+    // Modal progress bar shown while a background job runs; the job disposes it when done
+    private static class ProgressDialog extends JDialog {
+        private final JProgressBar progressBar = new JProgressBar(0, 100);
+        private final JLabel statusLabel = new JLabel("Starting...");
+
+        ProgressDialog(JFrame owner, String title) {
+            super(owner, title, true);
+            setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+            progressBar.setStringPainted(true);
+            progressBar.setPreferredSize(new Dimension(360, 28));
+            statusLabel.setFont(REGULAR_FONT);
+
+            JPanel panel = new JPanel(new BorderLayout(10, 10));
+            panel.setBorder(new EmptyBorder(20, 20, 20, 20));
+            panel.add(statusLabel, BorderLayout.NORTH);
+            panel.add(progressBar, BorderLayout.CENTER);
+            add(panel);
+            pack();
+            setLocationRelativeTo(owner);
+        }
+
+        void update(int percent, String status) {
+            progressBar.setValue(percent);
+            statusLabel.setText(status);
+        }
+    }
+
+    private void addExpenseChart(JPanel container) {
+        // Filled in by the dashboard loader
+        categoryDataset = new DefaultPieDataset<>();
+
         JFreeChart chart = ChartFactory.createPieChart(
             "Expense Distribution",
-            dataset,
+            categoryDataset,
             true,
             true,
             false
@@ -507,21 +610,7 @@ public class DashboardFrame extends JFrame {
             }
         };
 
-        try {
-            List<Map<String, Object>> recentExpenses = expenseDAO.getRecentExpenses(currentUser.getId(), 10);
-            for (Map<String, Object> expense : recentExpenses) {
-                model.addRow(new Object[]{
-                    expense.get("date"),
-                    expense.get("category") + " " + getCategoryIcon((String)expense.get("category")),
-                    expense.get("description"),
-                    String.format("$%.2f", expense.get("amount")),
-                    expense.get("id") // Store ID for actions
-                });
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            showErrorMessage("Error loading recent transactions: " + e.getMessage());
-        }
+        recentTransactionsModel = model;
 
         JTable table = new JTable(model);
         table.setRowHeight(40);
@@ -618,7 +707,8 @@ public class DashboardFrame extends JFrame {
         expense.setDate(LocalDate.parse(table.getValueAt(row, 0).toString()));
         String category = table.getValueAt(row, 1).toString().split(" ")[0]; // Remove icon
         expense.setCategoryName(category);
-        expense.setDescription(table.getValueAt(row, 2).toString());
+        // Imported rows may have no description
+        expense.setDescription(Objects.toString(table.getValueAt(row, 2), ""));
         String amountStr = table.getValueAt(row, 3).toString().replace("$", "");
         expense.setAmount(new BigDecimal(amountStr));
         return expense;
@@ -637,9 +727,30 @@ public class DashboardFrame extends JFrame {
     }
 
     private void createExpensesView() {
-        // Implementation for expenses view
-        JPanel expensesPanel = new JPanel();
+        JPanel expensesPanel = new JPanel(new BorderLayout(20, 20));
         expensesPanel.setBackground(secondaryColor);
+        expensesPanel.setBorder(BorderFactory.createEmptyBorder(30, 30, 30, 30));
+
+        // Header
+        JPanel headerPanel = createHeaderPanel("All Expenses");
+
+        // Rows are paged in from the database as the user scrolls
+        expenseTableModel = new ExpenseTableModel();
+        expenseTableModel.loadFrom(expenseDAO, currentUser.getId());
+
+        JTable table = new JTable(expenseTableModel);
+        table.setRowHeight(32);
+        table.setShowGrid(false);
+        table.setBackground(primaryColor);
+        table.getTableHeader().setFont(REGULAR_FONT.deriveFont(Font.BOLD));
+
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setBorder(new RoundedBorder(10, new Color(230, 230, 230)));
+        scrollPane.getViewport().setBackground(primaryColor);
+
+        expensesPanel.add(headerPanel, BorderLayout.NORTH);
+        expensesPanel.add(scrollPane, BorderLayout.CENTER);
+
         contentPanel.add(expensesPanel, "expenses");
     }
 
@@ -687,12 +798,24 @@ public class DashboardFrame extends JFrame {
             "Export your expense data",
             createExportPanel());
 
+        // Import Settings
+        JPanel importSection = createSettingsSection("📥 Import Statement",
+            "Import expenses from a bank statement (CSV or OFX)",
+            createImportPanel());
+
+        // Chat response times
+        JPanel latencySection = createSettingsSection("⏱ Chat Response Times",
+            "Compare answers computed locally with answers from the AI service",
+            createLatencyPanel());
+
         // Add sections to content
         contentPanel.add(apiSection);
         contentPanel.add(themeSection);
         contentPanel.add(languageSection);
         contentPanel.add(currencySection);
         contentPanel.add(exportSection);
+        contentPanel.add(importSection);
+        contentPanel.add(latencySection);
 
         // Add scroll support
         JScrollPane scrollPane = new JScrollPane(contentPanel);
@@ -882,7 +1005,7 @@ public class DashboardFrame extends JFrame {
         JPanel panel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
         panel.setBackground(primaryColor);
 
-        JButton exportButton = new JButton("Export to Excel");
+        JButton exportButton = new JButton("Export File");
         styleButton(exportButton, accentColor);
         exportButton.addActionListener(e -> exportData());
 
@@ -891,12 +1014,146 @@ public class DashboardFrame extends JFrame {
     }
 
     private void exportData() {
-        try {
-            // TODO: Implement actual export functionality
-            showSuccessMessage("Data exported successfully!");
-        } catch (Exception e) {
-            showErrorMessage("Error exporting data: " + e.getMessage());
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Export Expenses");
+        FileNameExtensionFilter xlsxFilter = new FileNameExtensionFilter("Excel workbook (*.xlsx)", "xlsx");
+        FileNameExtensionFilter csvFilter = new FileNameExtensionFilter("CSV file (*.csv)", "csv");
+        chooser.addChoosableFileFilter(xlsxFilter);
+        chooser.addChoosableFileFilter(csvFilter);
+        chooser.setFileFilter(xlsxFilter);
+        chooser.setSelectedFile(new File("expenses.xlsx"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File selected = chooser.getSelectedFile();
+        String name = selected.getName().toLowerCase();
+        if (!name.endsWith(".xlsx") && !name.endsWith(".csv")) {
+            selected = new File(selected.getParentFile(),
+                selected.getName() + (chooser.getFileFilter() == csvFilter ? ".csv" : ".xlsx"));
         }
+        if (selected.exists() && JOptionPane.showConfirmDialog(this,
+                selected.getName() + " already exists. Replace it?", "Export Expenses",
+                JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION) {
+            return;
+        }
+        Path file = selected.toPath();
+
+        ProgressDialog progressDialog = new ProgressDialog(this, "Exporting to " + file.getFileName());
+        backgroundJobs.<Long, long[]>run(
+            publish -> new ExpenseExporter().export(currentUser.getId(), file,
+                (written, total) -> publish.accept(new long[] {written, total})),
+            chunks -> {
+                long[] latest = chunks.get(chunks.size() - 1);
+                progressDialog.update(latest[1] > 0 ? (int) (latest[0] * 100 / latest[1]) : 100,
+                    String.format("%,d of %,d expenses written", latest[0], latest[1]));
+            },
+            written -> {
+                progressDialog.dispose();
+                showSuccessMessage(String.format("Exported %,d expenses to %s", written, file.getFileName()));
+            },
+            e -> {
+                progressDialog.dispose();
+                showErrorMessage("Error exporting data: " + e.getMessage());
+            });
+        progressDialog.setVisible(true);
+    }
+
+    private JPanel createLatencyPanel() {
+        JPanel panel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        panel.setBackground(primaryColor);
+
+        JButton showButton = new JButton("Show");
+        styleButton(showButton, accentColor);
+        showButton.addActionListener(e -> {
+            JTextArea report = new JTextArea(InsightEngine.getLocalLatency().format() + "\n"
+                + AIChatService.getRemoteLatency().format());
+            report.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+            report.setEditable(false);
+            JOptionPane.showMessageDialog(this, new JScrollPane(report), "Chat Response Times",
+                JOptionPane.PLAIN_MESSAGE);
+        });
+
+        panel.add(showButton);
+        return panel;
+    }
+
+    private JPanel createImportPanel() {
+        JPanel panel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        panel.setBackground(primaryColor);
+
+        JButton importButton = new JButton("Import File");
+        styleButton(importButton, accentColor);
+        importButton.addActionListener(e -> importStatement());
+
+        panel.add(importButton);
+        return panel;
+    }
+
+    private void importStatement() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Import Statement");
+        chooser.setFileFilter(new FileNameExtensionFilter("Bank statements (CSV, OFX, QFX)", "csv", "txt", "ofx", "qfx"));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+
+        List<ImportProfile> profiles = ImportProfile.loadAll();
+        ImportProfile profile = profiles.isEmpty() ? new ImportProfile() : profiles.get(0);
+        if (!StatementImporter.isOfx(file) && profiles.size() > 1) {
+            profile = (ImportProfile) JOptionPane.showInputDialog(this,
+                "Which bank format is this file in?", "Import Profile",
+                JOptionPane.QUESTION_MESSAGE, null, profiles.toArray(), profile);
+            if (profile == null) {
+                return;
+            }
+        }
+
+        ProgressDialog progressDialog = new ProgressDialog(this, "Importing " + file.getFileName());
+        ImportProfile selectedProfile = profile;
+        backgroundJobs.<StatementImporter.ImportResult, int[]>run(
+            publish -> new StatementImporter().importFile(file, currentUser.getId(), selectedProfile,
+                (bytesRead, totalBytes, imported) -> publish.accept(new int[] {
+                    totalBytes > 0 ? (int) (bytesRead * 100 / totalBytes) : 100, imported
+                })),
+            chunks -> {
+                // Only the latest update matters
+                int[] latest = chunks.get(chunks.size() - 1);
+                progressDialog.update(latest[0], String.format("%,d expenses imported", latest[1]));
+            },
+            result -> {
+                progressDialog.dispose();
+                refreshDashboard();
+                showImportSummary(result);
+            },
+            e -> {
+                progressDialog.dispose();
+                showErrorMessage("Error importing statement: " + e.getMessage());
+            });
+        progressDialog.setVisible(true);
+    }
+
+    private void showImportSummary(StatementImporter.ImportResult result) {
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format("Imported %,d expenses.%n", result.getImportedCount()));
+        if (result.getSkippedCount() > 0) {
+            summary.append(String.format("Skipped %,d deposits and refunds.%n", result.getSkippedCount()));
+        }
+        if (result.getDuplicateCount() > 0) {
+            summary.append(String.format("Skipped %,d transactions that were already recorded.%n", result.getDuplicateCount()));
+        }
+        if (result.getFailedCount() == 0) {
+            JOptionPane.showMessageDialog(this, summary.toString(), "Import Complete", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        summary.append(String.format("%,d rows could not be imported:%n", result.getFailedCount()));
+        for (String error : result.getErrors()) {
+            summary.append(error).append('\n');
+        }
+        JTextArea details = new JTextArea(summary.toString(), 12, 50);
+        details.setEditable(false);
+        details.setFont(REGULAR_FONT);
+        JOptionPane.showMessageDialog(this, new JScrollPane(details), "Import Complete", JOptionPane.WARNING_MESSAGE);
     }
 
     private void changeLanguage(String language) {
@@ -972,32 +1229,49 @@ public class DashboardFrame extends JFrame {
                 inputField.setText("");
                 scrollToBottom(scrollPane);
                 
-                // Process AI response in background
-                SwingWorker<Void, Void> worker = new SwingWorker<>() {
-                    @Override
-                    protected Void doInBackground() throws Exception {
-                        String apiKey = ConfigManager.getOpenAIKey();
+                String apiKey = ConfigManager.getOpenAIKey();
+
+                // Stream the answer into an empty bubble; tokens published between
+                // two progress callbacks are appended together and laid out once
+                JTextArea answerArea = addMessageBubble(messagesPanel, "", false);
+                AtomicReference<AIChatService> remote = new AtomicReference<>();
+                backgroundJobs.<String, String>run(publish -> {
+                        // Common questions are answered from the aggregates without a round trip
+                        String local = insightEngine.answer(currentUser.getId(), message);
+                        if (local != null) {
+                            return local;
+                        }
                         if (apiKey == null || apiKey.trim().isEmpty()) {
-                            addMessageBubble(messagesPanel, "Please set up your OpenAI API key in Settings first.", false);
-                            return null;
+                            return "Please set up your OpenAI API key in Settings first.";
                         }
-
-                        try {
-                            AIChatService chatService = new AIChatService(apiKey);
-                            Map<String, Object> dashboardData = new HashMap<>();
-                            dashboardData.put("totalExpenses", expenseDAO.getTotalExpenses(currentUser.getId()));
-                            dashboardData.put("categories", expenseDAO.getExpensesByCategory(currentUser.getId()));
-
-                            String response = chatService.processQuestion(message, dashboardData);
-                            addMessageBubble(messagesPanel, response, false);
-                        } catch (Exception ex) {
-                            addMessageBubble(messagesPanel, "Sorry, I encountered an error: " + ex.getMessage(), false);
+                        // Kept for the whole session, so follow-up questions see the conversation
+                        AIChatService chatService = ChatSessions.get(currentUser.getId(), apiKey);
+                        remote.set(chatService);
+                        // Rebuilt only after an expense or budget changes
+                        FinancialContext context = FinancialContextCache.get(currentUser.getId());
+                        return chatService.streamQuestion(message, context, publish::accept);
+                    },
+                    tokens -> {
+                        for (String token : tokens) {
+                            answerArea.append(token);
                         }
+                        sizeBubble(answerArea);
                         scrollToBottom(scrollPane);
-                        return null;
-                    }
-                };
-                worker.execute();
+                    },
+                    answer -> {
+                        answerArea.setText(answer);
+                        long ttft = remote.get() != null ? remote.get().getLastTimeToFirstTokenMillis() : -1;
+                        if (ttft >= 0) {
+                            answerArea.setToolTipText("First token after " + ttft + " ms");
+                        }
+                        sizeBubble(answerArea);
+                        scrollToBottom(scrollPane);
+                    },
+                    ex -> {
+                        answerArea.setText("Sorry, I encountered an error: " + ex.getMessage());
+                        sizeBubble(answerArea);
+                        scrollToBottom(scrollPane);
+                    });
             }
         };
 
@@ -1028,7 +1302,7 @@ public class DashboardFrame extends JFrame {
         this.contentPanel.add(chatPanel, "chat");
     }
 
-    private void addMessageBubble(JPanel container, String message, boolean isUser) {
+    private JTextArea addMessageBubble(JPanel container, String message, boolean isUser) {
         JPanel bubblePanel = new JPanel(new BorderLayout(10, 5));
         bubblePanel.setBackground(primaryColor);
         bubblePanel.setBorder(new EmptyBorder(5, isUser ? 50 : 10, 5, isUser ? 10 : 50));
@@ -1046,10 +1320,28 @@ public class DashboardFrame extends JFrame {
             new EmptyBorder(10, 15, 10, 15)
         ));
 
+        sizeBubble(textArea);
+
+        bubblePanel.add(textArea, BorderLayout.CENTER);
+        
+        // Add timestamp
+        JLabel timeLabel = new JLabel(new SimpleDateFormat("HH:mm").format(new Date()));
+        timeLabel.setFont(new Font("Segoe UI", Font.PLAIN, 10));
+        timeLabel.setForeground(new Color(128, 128, 128));
+        bubblePanel.add(timeLabel, isUser ? BorderLayout.WEST : BorderLayout.EAST);
+
+        container.add(bubblePanel);
+        container.revalidate();
+        container.repaint();
+        return textArea;
+    }
+
+    // Also called as a streamed answer grows
+    private void sizeBubble(JTextArea textArea) {
         // Calculate preferred size based on content
         FontMetrics fm = textArea.getFontMetrics(textArea.getFont());
         int maxWidth = 400; // Maximum bubble width
-        String[] lines = message.split("\n");
+        String[] lines = textArea.getText().split("\n");
         int width = 0;
         int height = 0;
         for (String line : lines) {
@@ -1060,18 +1352,7 @@ public class DashboardFrame extends JFrame {
         // Add extra height for word wrap
         height += (width < maxWidth ? 0 : (fm.getHeight() * (width / maxWidth)));
         textArea.setPreferredSize(new Dimension(width, height + 20));
-
-        bubblePanel.add(textArea, BorderLayout.CENTER);
-        
-        // Add timestamp
-        JLabel timeLabel = new JLabel(new SimpleDateFormat("HH:mm").format(new Date()));
-        timeLabel.setFont(new Font("Segoe UI", Font.PLAIN, 10));
-        timeLabel.setForeground(new Color(128, 128, 128));
-        bubblePanel.add(timeLabel, isUser ? BorderLayout.WEST : BorderLayout.EAST);
-
-        container.add(bubblePanel);
-        container.revalidate();
-        container.repaint();
+        textArea.revalidate();
     }
 
     private void scrollToBottom(JScrollPane scrollPane) {
@@ -1237,9 +1518,9 @@ public class DashboardFrame extends JFrame {
         JButton saveButton = new JButton("Save");
         styleButton(saveButton, accentColor);
         saveButton.addActionListener(e -> {
+            // Create new expense
+            Expense expense = new Expense();
             try {
-                // Create new expense
-                Expense expense = new Expense();
                 expense.setUserId(currentUser.getId());
                 expense.setAmount(new BigDecimal(amountField.getText()));
                 expense.setDate(((Date) dateSpinner.getValue()).toInstant()
@@ -1247,26 +1528,26 @@ public class DashboardFrame extends JFrame {
                     .toLocalDate());
                 expense.setDescription(descField.getText());
                 expense.setCategoryName(categoryBox.getSelectedItem().toString());
-
-                // Save to database
-                expenseDAO.createExpense(expense);
-
-                // Close dialog
-                dialog.dispose();
-                
-                // Refresh the entire dashboard view
-                SwingUtilities.invokeLater(() -> {
-                    contentPanel.remove(contentPanel.getComponent(0));
-                    createDashboardView();
-                    contentLayout.show(contentPanel, "dashboard");
-                    revalidate();
-                    repaint();
-                });
-                
-                showSuccessMessage("Expense added successfully!");
             } catch (Exception ex) {
                 showErrorMessage("Error adding expense: " + ex.getMessage());
+                return;
             }
+
+            // Save to database off the EDT; the dialog stays open until it is stored
+            saveButton.setEnabled(false);
+            backgroundJobs.run(() -> {
+                    expenseDAO.createExpense(expense);
+                    return null;
+                },
+                saved -> {
+                    dialog.dispose();
+                    refreshDashboard();
+                    showSuccessMessage("Expense added successfully!");
+                },
+                ex -> {
+                    saveButton.setEnabled(true);
+                    showErrorMessage("Error adding expense: " + ex.getMessage());
+                });
         });
 
         buttonPanel.add(cancelButton);
@@ -1349,23 +1630,63 @@ public class DashboardFrame extends JFrame {
     }
 
     private void refreshDashboard() {
-        try {
-            // Refresh stats
-            BigDecimal totalExpenses = expenseDAO.getTotalExpenses(currentUser.getId());
-            Map<String, BigDecimal> categoryTotals = expenseDAO.getExpensesByCategory(currentUser.getId());
-            
-            // Update UI components
-            SwingUtilities.invokeLater(() -> {
-                // Refresh all panels
-                createDashboardView();
-                contentLayout.show(contentPanel, "dashboard");
-                revalidate();
-                repaint();
-            });
-        } catch (SQLException e) {
-            e.printStackTrace();
-            showErrorMessage("Error refreshing dashboard: " + e.getMessage());
+        expenseTableModel.refreshData();
+        dashboardLoader.requestRefresh();
+    }
+
+    private void applyDashboardData(DashboardSnapshot snapshot) {
+        // Stat cards
+        Double change = snapshot.getMonthOverMonthChange();
+        String trend = change == null ? "" : String.format("%s %+.0f%%", change >= 0 ? "📈" : "📉", change);
+        totalExpensesCard.update(String.format("$%,.2f", snapshot.getTotalExpenses()), trend);
+        monthlyAverageCard.update(String.format("$%,.2f", snapshot.getMonthlyAverage()), "📊");
+        String topCategory = snapshot.getTopCategory();
+        topCategoryCard.update(topCategory == null ? "-" : topCategory,
+            topCategory == null ? "" : getCategoryIcon(topCategory));
+        Map<String, BigDecimal> categoryTotals = snapshot.getCategoryTotals();
+
+        // Pie chart: drop categories that disappeared, then update the rest in place
+        for (Object key : new ArrayList<>(categoryDataset.getKeys())) {
+            if (!categoryTotals.containsKey(key)) {
+                categoryDataset.remove((String) key);
+            }
+        }
+        categoryTotals.forEach((category, amount) -> {
+            Number current = categoryDataset.getIndex(category) >= 0 ? categoryDataset.getValue(category) : null;
+            if (current == null || current.doubleValue() != amount.doubleValue()) {
+                categoryDataset.setValue(category, amount.doubleValue());
+            }
+        });
+
+        // Recent transactions: only touch cells that changed
+        List<Expense> recentExpenses = snapshot.getRecentExpenses();
+        for (int row = 0; row < recentExpenses.size(); row++) {
+            Expense expense = recentExpenses.get(row);
+            Object[] values = {
+                expense.getDate(),
+                expense.getCategoryName() + " " + getCategoryIcon(expense.getCategoryName()),
+                expense.getDescription(),
+                String.format("$%.2f", expense.getAmount()),
+                expense.getId() // Store ID for actions
+            };
+            if (row < recentTransactionsModel.getRowCount()) {
+                for (int col = 0; col < values.length; col++) {
+                    if (!Objects.equals(recentTransactionsModel.getValueAt(row, col), values[col])) {
+                        recentTransactionsModel.setValueAt(values[col], row, col);
+                    }
+                }
+            } else {
+                recentTransactionsModel.addRow(values);
+            }
         }
+        while (recentTransactionsModel.getRowCount() > recentExpenses.size()) {
+            recentTransactionsModel.removeRow(recentTransactionsModel.getRowCount() - 1);
+        }
+    }
+
+    private void handleDashboardError(Throwable error) {
+        error.printStackTrace();
+        showErrorMessage("Error refreshing dashboard: " + error.getMessage());
     }
 
     // Add this method to handle expense editing
@@ -1426,19 +1747,26 @@ public class DashboardFrame extends JFrame {
                     .toLocalDate());
                 expense.setDescription(descField.getText());
                 expense.setCategoryName(categoryBox.getSelectedItem().toString());
-
-                // Update in database
-                expenseDAO.updateExpense(expense);
-
-                // Close dialog
-                dialog.dispose();
-                
-                // Refresh the dashboard
-                refreshDashboard();
-                showSuccessMessage("Expense updated successfully!");
             } catch (Exception ex) {
                 showErrorMessage("Error updating expense: " + ex.getMessage());
+                return;
             }
+
+            // Update in database off the EDT
+            saveButton.setEnabled(false);
+            backgroundJobs.run(() -> {
+                    expenseDAO.updateExpense(expense);
+                    return null;
+                },
+                updated -> {
+                    dialog.dispose();
+                    refreshDashboard();
+                    showSuccessMessage("Expense updated successfully!");
+                },
+                ex -> {
+                    saveButton.setEnabled(true);
+                    showErrorMessage("Error updating expense: " + ex.getMessage());
+                });
         });
 
         buttonPanel.add(cancelButton);
@@ -1460,14 +1788,16 @@ public class DashboardFrame extends JFrame {
         );
 
         if (choice == JOptionPane.YES_OPTION) {
-            try {
-                // Delete from database
-                expenseDAO.deleteExpense(expense.getId());
-                refreshDashboard();
-                showSuccessMessage("Expense deleted successfully!");
-            } catch (Exception e) {
-                showErrorMessage("Error deleting expense: " + e.getMessage());
-            }
+            // Delete from database off the EDT
+            backgroundJobs.run(() -> {
+                    expenseDAO.deleteExpense(expense.getId());
+                    return null;
+                },
+                deleted -> {
+                    refreshDashboard();
+                    showSuccessMessage("Expense deleted successfully!");
+                },
+                e -> showErrorMessage("Error deleting expense: " + e.getMessage()));
         }
     }
 
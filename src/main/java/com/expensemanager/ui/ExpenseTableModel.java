@@ -1,19 +1,50 @@
 package com.expensemanager.ui;
 
+import com.expensemanager.dao.ExpenseCursor;
+import com.expensemanager.dao.ExpenseDAO;
 import com.expensemanager.models.Expense;
 import javax.swing.table.AbstractTableModel;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class ExpenseTableModel extends AbstractTableModel {
-    private List<Expense> expenses = new ArrayList<>();
+    public static final int DEFAULT_PAGE_SIZE = 200;
+    // Pages kept in memory at once when lazily loading from the database
+    private static final int MAX_CACHED_PAGES = 8;
+
     private final String[] columnNames = {"Date", "Category", "Description", "Amount"};
     private final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private final int pageSize;
+
+    // Loaded pages by page index, least recently used first
+    private final Map<Integer, List<Expense>> pages = new LinkedHashMap<>(16, 0.75f, true);
+    // Keyset position each page starts after; only one small key per page is kept
+    private final List<ExpenseCursor> pageStarts = new ArrayList<>();
+    private final Set<Integer> loadingPages = new HashSet<>();
+    private int rowCount;
+    private boolean hasMore;
+
+    private ExpenseDAO expenseDAO;
+    private int userId;
+    // Bumped on every reset so results of stale loads are dropped
+    private int generation;
+
+    public ExpenseTableModel() {
+        this(DEFAULT_PAGE_SIZE);
+    }
+
+    public ExpenseTableModel(int pageSize) {
+        this.pageSize = pageSize;
+    }
 
     @Override
     public int getRowCount() {
-        return expenses.size();
+        return rowCount;
     }
 
     @Override
@@ -28,7 +59,10 @@ public class ExpenseTableModel extends AbstractTableModel {
 
     @Override
     public Object getValueAt(int rowIndex, int columnIndex) {
-        Expense expense = expenses.get(rowIndex);
+        Expense expense = getExpenseAt(rowIndex);
+        if (expense == null) {
+            return null; // Page is still loading
+        }
         switch (columnIndex) {
             case 0: return expense.getDate().format(dateFormatter);
             case 1: return expense.getCategoryName();
@@ -38,39 +72,152 @@ public class ExpenseTableModel extends AbstractTableModel {
         }
     }
 
+    /**
+     * Switches the model to lazy loading: rows are fetched page by page from
+     * the user's history as the table asks for them, and only a bounded
+     * number of pages is held in memory.
+     */
+    public void loadFrom(ExpenseDAO expenseDAO, int userId) {
+        this.expenseDAO = expenseDAO;
+        this.userId = userId;
+        reset();
+        pageStarts.add(null);
+        hasMore = true;
+        requestPage(0);
+    }
+
     public void setExpenses(List<Expense> expenses) {
-        this.expenses = expenses;
+        this.expenseDAO = null;
+        reset();
+        for (int start = 0; start < expenses.size(); start += pageSize) {
+            List<Expense> page = new ArrayList<>(expenses.subList(start, Math.min(start + pageSize, expenses.size())));
+            pages.put(pageStarts.size(), page);
+            pageStarts.add(null);
+        }
+        rowCount = expenses.size();
         fireTableDataChanged();
     }
 
     public Expense getExpenseAt(int rowIndex) {
-        if (rowIndex >= 0 && rowIndex < expenses.size()) {
-            return expenses.get(rowIndex);
+        if (rowIndex < 0 || rowIndex >= rowCount) {
+            return null;
+        }
+        int pageIndex = rowIndex / pageSize;
+        List<Expense> page = pages.get(pageIndex);
+        if (page == null) {
+            requestPage(pageIndex);
+            return null;
         }
-        return null;
+        // Prefetch the next page once the user scrolls into the last loaded one
+        if (hasMore && pageIndex + 1 == pageStarts.size() - 1) {
+            requestPage(pageIndex + 1);
+        }
+        int offset = rowIndex % pageSize;
+        return offset < page.size() ? page.get(offset) : null;
     }
 
     public void updateExpense(Expense expense) {
-        for (int i = 0; i < expenses.size(); i++) {
-            if (expenses.get(i).getId() == expense.getId()) {
-                expenses.set(i, expense);
-                fireTableRowsUpdated(i, i);
-                break;
+        for (Map.Entry<Integer, List<Expense>> entry : pages.entrySet()) {
+            List<Expense> page = entry.getValue();
+            for (int i = 0; i < page.size(); i++) {
+                if (page.get(i).getId() == expense.getId()) {
+                    page.set(i, expense);
+                    int row = entry.getKey() * pageSize + i;
+                    fireTableRowsUpdated(row, row);
+                    return;
+                }
             }
         }
     }
 
     public void deleteExpense(int expenseId) {
-        for (int i = 0; i < expenses.size(); i++) {
-            if (expenses.get(i).getId() == expenseId) {
-                expenses.remove(i);
-                fireTableRowsDeleted(i, i);
-                break;
+        if (expenseDAO != null) {
+            // Deleting shifts every later row, so start paging again from the top
+            refreshData();
+            return;
+        }
+        List<Expense> remaining = new ArrayList<>(rowCount);
+        for (int i = 0; i < pageStarts.size(); i++) {
+            for (Expense expense : pages.get(i)) {
+                if (expense.getId() != expenseId) {
+                    remaining.add(expense);
+                }
             }
         }
+        setExpenses(remaining);
     }
 
     public void refreshData() {
+        if (expenseDAO != null) {
+            loadFrom(expenseDAO, userId);
+        } else {
+            fireTableDataChanged();
+        }
+    }
+
+    private void reset() {
+        generation++;
+        pages.clear();
+        pageStarts.clear();
+        loadingPages.clear();
+        rowCount = 0;
+        hasMore = false;
         fireTableDataChanged();
     }
-} 
\ No newline at end of file
+
+    private void requestPage(int pageIndex) {
+        if (expenseDAO == null || pageIndex >= pageStarts.size() || !loadingPages.add(pageIndex)) {
+            return;
+        }
+        final ExpenseDAO dao = expenseDAO;
+        final int owner = userId;
+        final ExpenseCursor after = pageStarts.get(pageIndex);
+        final int requestGeneration = generation;
+
+        BackgroundExecutor.run(() -> dao.getExpensesPage(owner, after, pageSize),
+            page -> {
+                if (requestGeneration == generation) {
+                    loadingPages.remove(pageIndex);
+                    pageLoaded(pageIndex, page);
+                }
+            },
+            e -> {
+                if (requestGeneration == generation) {
+                    loadingPages.remove(pageIndex);
+                    System.err.println("Error loading expenses: " + e.getMessage());
+                }
+            });
+    }
+
+    private void pageLoaded(int pageIndex, List<Expense> page) {
+        pages.put(pageIndex, page);
+        evictPages(pageIndex);
+
+        int firstRow = pageIndex * pageSize;
+        boolean frontier = pageIndex == pageStarts.size() - 1;
+        if (!frontier) {
+            fireTableRowsUpdated(firstRow, firstRow + page.size() - 1);
+            return;
+        }
+
+        if (page.size() == pageSize) {
+            pageStarts.add(ExpenseCursor.after(page.get(page.size() - 1)));
+        } else {
+            hasMore = false;
+        }
+        if (!page.isEmpty()) {
+            rowCount = firstRow + page.size();
+            fireTableRowsInserted(firstRow, rowCount - 1);
+        }
+    }
+
+    private void evictPages(int keep) {
+        while (pages.size() > MAX_CACHED_PAGES) {
+            Integer eldest = pages.keySet().iterator().next();
+            if (eldest == keep) {
+                break;
+            }
+            pages.remove(eldest);
+        }
+    }
+}
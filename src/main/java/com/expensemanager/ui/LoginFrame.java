@@ -15,6 +15,7 @@ public class LoginFrame extends JFrame {
     private JButton loginButton;
     private JButton registerButton;
     private final UserDAO userDAO;
+    private final BackgroundExecutor.Scope backgroundJobs = BackgroundExecutor.newScope();
     private JPanel mainPanel;
     private JPanel loginPanel;
     private JPanel registerPanel;
@@ -203,13 +204,17 @@ public class LoginFrame extends JFrame {
             String confirmPass = new String(confirmPasswordField.getPassword());
 
             if (password.equals(confirmPass)) {
-                try {
-                    userDAO.createUser(username, password);
-                    JOptionPane.showMessageDialog(this, "Registration successful! ✅");
-                    animateTransition("login");
-                } catch (Exception ex) {
-                    JOptionPane.showMessageDialog(this, "Registration failed: " + ex.getMessage() + " ❌");
-                }
+                registerButton.setEnabled(false);
+                backgroundJobs.run(() -> userDAO.createUser(username, password),
+                    created -> {
+                        registerButton.setEnabled(true);
+                        JOptionPane.showMessageDialog(this, "Registration successful! ✅");
+                        animateTransition("login");
+                    },
+                    ex -> {
+                        registerButton.setEnabled(true);
+                        JOptionPane.showMessageDialog(this, "Registration failed: " + ex.getMessage() + " ❌");
+                    });
             } else {
                 JOptionPane.showMessageDialog(this, "Passwords don't match! ❌");
             }
@@ -217,22 +222,33 @@ public class LoginFrame extends JFrame {
         registerPanel.add(registerButton);
     }
 
+    // Password hashing and the lookups run in the background so the frame stays responsive
     private void handleLogin() {
-        try {
-            String username = usernameField.getText();
-            String password = new String(passwordField.getPassword());
+        String username = usernameField.getText();
+        String password = new String(passwordField.getPassword());
+
+        loginButton.setEnabled(false);
+        backgroundJobs.run(() -> userDAO.authenticate(username, password) ? userDAO.findByUsername(username) : null,
+            user -> {
+                loginButton.setEnabled(true);
+                if (user != null) {
+                    dispose();
+                    new DashboardFrame(user);
+                } else {
+                    shakeTimer.start();
+                    JOptionPane.showMessageDialog(this, "Invalid username or password! ❌");
+                }
+            },
+            e -> {
+                loginButton.setEnabled(true);
+                JOptionPane.showMessageDialog(this, "Login error: " + e.getMessage() + " ❌");
+            });
+    }
 
-            if (userDAO.authenticate(username, password)) {
-                User user = userDAO.findByUsername(username);
-                dispose();
-                new DashboardFrame(user);
-            } else {
-                shakeTimer.start();
-                JOptionPane.showMessageDialog(this, "Invalid username or password! ❌");
-            }
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, "Login error: " + e.getMessage() + " ❌");
-        }
+    @Override
+    public void dispose() {
+        backgroundJobs.close();
+        super.dispose();
     }
 
     private void animateTransition(String targetCard) {
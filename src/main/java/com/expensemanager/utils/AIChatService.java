@@ -1,107 +1,238 @@
 package com.expensemanager.utils;
 
+import com.expensemanager.models.FinancialContext;
 import okhttp3.*;
+import okio.BufferedSource;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.InterruptedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 public class AIChatService {
     private static final String DEEPSEEK_API_URL = "https://api.deepseek.com/v1/chat/completions";
+    private static final String DEEPSEEK_BASE_URL = "https://api.deepseek.com/";
     private static final String SYSTEM_PROMPT = "You are a helpful financial assistant. Analyze the expense data and provide clear, concise summaries and insights.";
+    private static final String QUESTION_MARKER = "\n\nUser Question: ";
+    // Earlier questions that go into the cache key, since follow-ups depend on them
+    private static final int HISTORY_TAIL_QUESTIONS = 2;
+    // Shared by every chat, so one window's answer serves the same question from another
+    private static final AIResponseCache responseCache = new AIResponseCache(256, TimeUnit.MINUTES.toMillis(10));
+    // Whole answers from the remote path, cache hits included, to set against InsightEngine's local answers
+    private static final LatencyHistogram remoteLatency = new LatencyHistogram("Answered by the AI service");
+    // Tokens of history sent with each request, overridden by ai.history.tokenBudget
+    public static final int DEFAULT_HISTORY_TOKEN_BUDGET = 3000;
+    // One client for the whole process, so every chat reuses the same pooled, keep-alive connections
+    private static OkHttpClient sharedClient;
+    // Also process-wide: the API's limits apply to all windows together
+    private static final ResilientCaller resilientCaller = new ResilientCaller(
+        new TokenBucket(ConfigManager.getIntProperty("ai.rateLimit.burst", 5),
+            ConfigManager.getIntProperty("ai.rateLimit.perMinute", 30)),
+        new CircuitBreaker(5, TimeUnit.SECONDS.toMillis(30)));
     private final String apiKey;
+    private final String apiUrl;
     private final OkHttpClient client;
-    private final List<JSONObject> conversationHistory;
+    private final ConversationHistory conversationHistory;
     private final MediaType JSON = MediaType.get("application/json");
+    private volatile long lastTimeToFirstTokenMillis = -1;
 
     public AIChatService(String apiKey) {
+        this(apiKey, ConfigManager.getIntProperty("ai.history.tokenBudget", DEFAULT_HISTORY_TOKEN_BUDGET));
+    }
+
+    public AIChatService(String apiKey, int historyTokenBudget) {
+        this(apiKey, historyTokenBudget, DEEPSEEK_API_URL);
+    }
+
+    // Tests point this at a local server
+    AIChatService(String apiKey, int historyTokenBudget, String apiUrl) {
         if (apiKey == null || apiKey.trim().isEmpty()) {
             throw new IllegalArgumentException("Deepseek API key cannot be null or empty");
         }
         this.apiKey = apiKey;
-        this.client = new OkHttpClient.Builder()
-            .connectTimeout(30, TimeUnit.SECONDS)
-            .readTimeout(30, TimeUnit.SECONDS)
-            .writeTimeout(30, TimeUnit.SECONDS)
-            .build();
-        this.conversationHistory = new ArrayList<>();
-        initializeConversation();
+        this.apiUrl = apiUrl;
+        this.client = sharedClient();
+        this.conversationHistory = new ConversationHistory(SYSTEM_PROMPT, historyTokenBudget);
     }
 
-    private void initializeConversation() {
-        conversationHistory.clear();
-        conversationHistory.add(new JSONObject()
-            .put("role", "system")
-            .put("content", SYSTEM_PROMPT));
+    static synchronized OkHttpClient sharedClient() {
+        if (sharedClient == null) {
+            sharedClient = new OkHttpClient.Builder()
+                .connectTimeout(30, TimeUnit.SECONDS)
+                .readTimeout(30, TimeUnit.SECONDS)
+                .writeTimeout(30, TimeUnit.SECONDS)
+                // Chats are minutes apart, so idle connections are kept longer than the default
+                .connectionPool(new okhttp3.ConnectionPool(5, 10, TimeUnit.MINUTES))
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                // Keeps idle HTTP/2 connections from being dropped silently by proxies and NATs
+                .pingInterval(30, TimeUnit.SECONDS)
+                .build();
+        }
+        return sharedClient;
     }
 
-    public String processQuestion(String question, Map<String, Object> dashboardData) throws IOException {
-        int maxRetries = 3;
-        int baseDelayMs = 5000; // 5 seconds base delay
+    /**
+     * Opens a connection to the API in the background, so the TLS handshake is
+     * done and pooled before the first question. Any response will do; it is
+     * discarded.
+     */
+    static void warmUp() {
+        Request request = new Request.Builder().url(DEEPSEEK_BASE_URL).head().build();
+        sharedClient().newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                System.err.println("Could not warm up AI connection: " + e.getMessage());
+            }
 
-        for (int attempt = 0; attempt < maxRetries; attempt++) {
-            try {
-                if (attempt > 0) {
-                    Thread.sleep(baseDelayMs * (long)Math.pow(2, attempt - 1));
-                }
-                return makeDeepseekAPIRequest(question, dashboardData);
-            } catch (IOException e) {
-                if (e.getMessage().contains("429") && attempt < maxRetries - 1) {
-                    continue;
-                }
-                throw new IOException("Deepseek API error: " + e.getMessage());
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new IOException("Request interrupted", e);
+            @Override
+            public void onResponse(Call call, Response response) {
+                response.close();
             }
+        });
+    }
+
+    // Cancels calls in flight and closes pooled connections; the next chat builds a new client
+    static synchronized void shutdownSharedClient() {
+        if (sharedClient == null) {
+            return;
         }
-        throw new IOException("Max retries exceeded");
+        sharedClient.dispatcher().cancelAll();
+        sharedClient.dispatcher().executorService().shutdown();
+        sharedClient.connectionPool().evictAll();
+        sharedClient = null;
+    }
+
+    boolean usesKey(String key) {
+        return apiKey.equals(key);
     }
 
-    private String makeDeepseekAPIRequest(String question, Map<String, Object> dashboardData) throws IOException {
+    public interface StreamListener {
+        /**
+         * Called with each piece of the answer as it arrives, on an HTTP
+         * client thread. An answer served from the cache comes as a single
+         * piece, on the requesting thread.
+         */
+        void onToken(String token);
+    }
+
+    /**
+     * Answers the question, reusing a cached answer when the same question
+     * was asked about the same data after the same recent questions.
+     */
+    public String processQuestion(String question, Map<String, Object> dashboardData) throws IOException {
+        return ask(question, formatDashboardData(dashboardData), null);
+    }
+
+    /**
+     * Like processQuestion, but asks the API to stream its answer and hands
+     * each piece to the listener as it arrives. Returns the full answer.
+     */
+    public String streamQuestion(String question, Map<String, Object> dashboardData, StreamListener listener)
+            throws IOException {
+        if (listener == null) {
+            throw new IllegalArgumentException("Stream listener cannot be null");
+        }
+        return ask(question, formatDashboardData(dashboardData), listener);
+    }
+
+    /**
+     * Streams the answer with a prebuilt FinancialContext as the data. The
+     * context's prompt text only changes with the user's data, so repeated
+     * questions also hit the answer cache.
+     */
+    public String streamQuestion(String question, FinancialContext context, StreamListener listener)
+            throws IOException {
+        if (listener == null) {
+            throw new IllegalArgumentException("Stream listener cannot be null");
+        }
+        return ask(question, context.toPrompt(), listener);
+    }
+
+    /**
+     * Milliseconds from sending the last streamed question until the first
+     * piece of its answer arrived, or -1 if nothing has been streamed yet.
+     */
+    public long getLastTimeToFirstTokenMillis() {
+        return lastTimeToFirstTokenMillis;
+    }
+
+    public static LatencyHistogram getRemoteLatency() {
+        return remoteLatency;
+    }
+
+    private String ask(String question, String data, StreamListener listener) throws IOException {
         if (question == null || question.trim().isEmpty()) {
             throw new IllegalArgumentException("Question cannot be null or empty");
         }
+        String content = data + QUESTION_MARKER + question;
+        String normalized = normalizeQuestion(question);
 
-        // Add user message to conversation history
-        JSONObject userMessage = new JSONObject()
-            .put("role", "user")
-            .put("content", formatQuestionWithData(question, dashboardData));
-        conversationHistory.add(userMessage);
+        String messages;
+        String key;
+        synchronized (this) {
+            messages = conversationHistory.serializeWith(content);
+            key = AIResponseCache.key(normalized, data, recentQuestions(normalized));
+        }
 
-        // Prepare the request body
-        JSONObject requestBody = new JSONObject()
-            .put("model", "deepseek-chat")
-            .put("messages", new JSONArray(conversationHistory))
-            .put("temperature", 0.7)
-            .put("max_tokens", 1000);
+        long startNanos = System.nanoTime();
+        boolean[] streamed = {false};
+        String response = responseCache.get(key, () -> {
+            if (listener == null) {
+                return await(resilientCaller.call(() -> makeDeepseekAPIRequest(messages)));
+            }
+            streamed[0] = true;
+            return await(resilientCaller.call(() -> makeStreamingRequest(messages, listener, startNanos)));
+        });
+        if (listener != null && !streamed[0]) {
+            // Cached, or answered by an identical request already in flight
+            recordFirstToken(startNanos);
+            listener.onToken(response);
+        }
 
-        // Build the request
-        Request request = new Request.Builder()
-            .url(DEEPSEEK_API_URL)
-            .addHeader("Authorization", "Bearer " + apiKey)
-            .addHeader("Content-Type", "application/json")
-            .post(RequestBody.create(requestBody.toString(), JSON))
-            .build();
+        remoteLatency.record(System.nanoTime() - startNanos);
+
+        synchronized (this) {
+            conversationHistory.addTurn(question, content, response);
+        }
+        return response;
+    }
 
-        // Execute the request
-        try (Response response = client.newCall(request).execute()) {
+    /**
+     * Waits for the answer. Retries and their backoff happen on the scheduler
+     * meanwhile; interrupting the waiting thread cancels the request.
+     */
+    private static String await(CompletableFuture<String> answer) throws IOException {
+        try {
+            return answer.get();
+        } catch (InterruptedException e) {
+            answer.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Request interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    // Takes the messages already serialized, so the history isn't re-encoded on every request
+    private CompletableFuture<String> makeDeepseekAPIRequest(String messages) {
+        return send(buildRequest(messages, false), response -> {
             String responseBody = response.body() != null ? response.body().string() : null;
             
             if (!response.isSuccessful()) {
-                String errorMessage = "Deepseek API error: " + response.code();
-                if (responseBody != null) {
-                    try {
-                        JSONObject errorJson = new JSONObject(responseBody);
-                        errorMessage += " - " + errorJson.optString("error", "Unknown error");
-                    } catch (Exception e) {
-                        errorMessage += " - " + responseBody;
-                    }
-                }
-                throw new IOException(errorMessage);
+                throw failure(response, responseBody);
             }
 
             if (responseBody == null) {
@@ -110,33 +241,204 @@ public class AIChatService {
 
             try {
                 JSONObject jsonResponse = new JSONObject(responseBody);
-                String assistantResponse = jsonResponse
+                return jsonResponse
                     .getJSONArray("choices")
                     .getJSONObject(0)
                     .getJSONObject("message")
                     .getString("content");
+            } catch (Exception e) {
+                throw new IOException("Failed to parse Deepseek API response: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Reads the server-sent event stream line by line as it arrives. Each
+     * "data:" line holds one JSON chunk whose delta carries the next piece of
+     * the answer; "[DONE]" ends the stream. Only the answer text itself is
+     * accumulated.
+     */
+    private CompletableFuture<String> makeStreamingRequest(String messages, StreamListener listener, long startNanos) {
+        return send(buildRequest(messages, true), response -> {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful()) {
+                throw failure(response, body != null ? body.string() : null);
+            }
+            if (body == null) {
+                throw new IOException("Empty response from Deepseek API");
+            }
+
+            StringBuilder answer = new StringBuilder();
+            try {
+                BufferedSource source = body.source();
+                String line;
+                while ((line = source.readUtf8Line()) != null) {
+                    // Blank lines separate events; lines starting with ':' are keep-alive comments
+                    if (!line.startsWith("data:")) {
+                        continue;
+                    }
+                    String data = line.substring(5).trim();
+                    if (data.equals("[DONE]")) {
+                        break;
+                    }
+                    String token = parseDelta(data);
+                    if (token == null || token.isEmpty()) {
+                        continue;
+                    }
+                    if (answer.length() == 0) {
+                        recordFirstToken(startNanos);
+                    }
+                    answer.append(token);
+                    listener.onToken(token);
+                }
+            } catch (IOException e) {
+                if (answer.length() == 0) {
+                    throw e;
+                }
+                // Part of the answer is already shown, so a retry would repeat it
+                throw new AIServiceException("Deepseek API stream interrupted: " + e.getMessage(), e);
+            }
 
-                // Add assistant's response to conversation history
-                conversationHistory.add(new JSONObject()
-                    .put("role", "assistant")
-                    .put("content", assistantResponse));
+            if (answer.length() == 0) {
+                throw new IOException("Empty response from Deepseek API");
+            }
+            return answer.toString();
+        });
+    }
 
-                return assistantResponse;
+    private interface ResponseHandler {
+        String handle(Response response) throws IOException;
+    }
+
+    // Runs the call on the client's dispatcher; cancelling the future cancels the call
+    private CompletableFuture<String> send(Request request, ResponseHandler handler) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        Call call = client.newCall(request);
+        future.whenComplete((value, error) -> {
+            if (future.isCancelled()) {
+                call.cancel();
+            }
+        });
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call failed, IOException e) {
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call succeeded, Response response) {
+                try (Response closing = response) {
+                    future.complete(handler.handle(closing));
+                } catch (IOException | RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+        return future;
+    }
+
+    private static String parseDelta(String data) throws IOException {
+        try {
+            JSONObject chunk = new JSONObject(data);
+            JSONArray choices = chunk.optJSONArray("choices");
+            JSONObject choice = choices != null ? choices.optJSONObject(0) : null;
+            JSONObject delta = choice != null ? choice.optJSONObject("delta") : null;
+            return delta != null ? delta.optString("content", "") : null;
+        } catch (Exception e) {
+            throw new IOException("Failed to parse Deepseek API stream: " + e.getMessage());
+        }
+    }
+
+    private Request buildRequest(String messages, boolean stream) {
+        String requestBody = "{\"model\":\"deepseek-chat\",\"temperature\":0.7,\"max_tokens\":1000,"
+            + (stream ? "\"stream\":true," : "") + "\"messages\":" + messages + "}";
+
+        Request.Builder request = new Request.Builder()
+            .url(apiUrl)
+            .addHeader("Authorization", "Bearer " + apiKey)
+            .addHeader("Content-Type", "application/json");
+        if (stream) {
+            request.addHeader("Accept", "text/event-stream");
+        }
+        return request.post(RequestBody.create(requestBody, JSON)).build();
+    }
+
+    private static AIServiceException failure(Response response, String responseBody) {
+        return AIServiceException.fromResponse(errorMessage(response.code(), responseBody), response.code(),
+            response.header("Retry-After"));
+    }
+
+    private static String errorMessage(int code, String responseBody) {
+        String errorMessage = "Deepseek API error: " + code;
+        if (responseBody != null) {
+            try {
+                JSONObject errorJson = new JSONObject(responseBody);
+                errorMessage += " - " + errorJson.optString("error", "Unknown error");
             } catch (Exception e) {
-                throw new IOException("Failed to parse Deepseek API response: " + e.getMessage());
+                errorMessage += " - " + responseBody;
             }
         }
+        return errorMessage;
+    }
+
+    private void recordFirstToken(long startNanos) {
+        lastTimeToFirstTokenMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
     }
 
-    private String formatQuestionWithData(String question, Map<String, Object> data) {
+    // Numbers as plain text and maps as "key value" pairs, rather than BigDecimal and LinkedHashMap toString()
+    private String formatDashboardData(Map<String, Object> data) {
         StringBuilder context = new StringBuilder("Current Dashboard Data:\n");
         for (Map.Entry<String, Object> entry : data.entrySet()) {
-            context.append(entry.getKey()).append(": ").append(entry.getValue()).append("\n");
+            context.append(entry.getKey()).append(": ");
+            appendValue(context, entry.getValue());
+            context.append("\n");
         }
-        return context.toString() + "\n\nUser Question: " + question;
+        return context.toString();
     }
 
-    public void clearConversation() {
-        initializeConversation();
+    private static void appendValue(StringBuilder context, Object value) {
+        if (value instanceof BigDecimal) {
+            context.append(((BigDecimal) value).setScale(2, RoundingMode.HALF_UP).toPlainString());
+        } else if (value instanceof Map) {
+            String separator = "";
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                context.append(separator).append(entry.getKey()).append(' ');
+                appendValue(context, entry.getValue());
+                separator = ", ";
+            }
+        } else {
+            context.append(value);
+        }
+    }
+
+    // Case, spacing and trailing punctuation don't change what is being asked
+    private static String normalizeQuestion(String question) {
+        String normalized = question.trim().toLowerCase().replaceAll("\\s+", " ");
+        return normalized.replaceAll("[?!.\\s]+$", "");
+    }
+
+    /**
+     * The last few questions asked before this one, skipping repeats of the
+     * current question so that asking the same thing twice in a row can be
+     * answered from the cache.
+     */
+    private String recentQuestions(String normalized) {
+        StringBuilder recent = new StringBuilder();
+        int found = 0;
+        for (String question : conversationHistory.recentQuestions()) {
+            if (found == HISTORY_TAIL_QUESTIONS) {
+                break;
+            }
+            String earlier = normalizeQuestion(question);
+            if (!earlier.equals(normalized)) {
+                recent.append(earlier).append('\n');
+                found++;
+            }
+        }
+        return recent.toString();
+    }
+
+    public synchronized void clearConversation() {
+        conversationHistory.clear();
     }
 }
\ No newline at end of file
@@ -0,0 +1,166 @@
+package com.expensemanager.utils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Remembers chat answers for a while, so asking the same thing about the same
+ * data doesn't go back to the API. Entries expire after a fixed time and the
+ * least recently used one is dropped when the cache is full.
+ *
+ * Identical requests that arrive while the first is still waiting on the API
+ * share its answer instead of sending their own.
+ */
+final class AIResponseCache {
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final Map<String, CachedResponse> entries;
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    interface Loader {
+        String load() throws IOException;
+    }
+
+    AIResponseCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        // Access order, so the eldest entry is the least recently used
+        this.entries = new LinkedHashMap<String, CachedResponse>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                return size() > AIResponseCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * SHA-256 of the parts, each kept distinct so ("ab", "c") and ("a", "bc")
+     * don't collide.
+     */
+    static String key(String... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : parts) {
+                byte[] bytes = (part != null ? part : "").getBytes(StandardCharsets.UTF_8);
+                digest.update((byte) (bytes.length >>> 24));
+                digest.update((byte) (bytes.length >>> 16));
+                digest.update((byte) (bytes.length >>> 8));
+                digest.update((byte) bytes.length);
+                digest.update(bytes);
+            }
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : digest.digest()) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every JRE is required to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the cached answer for the key, or loads it. If another thread
+     * is already loading the same key this waits for its result; a failed
+     * load is reported to every waiter and nothing is cached. A loader whose
+     * own thread is interrupted (its window closed) fails alone: its waiters
+     * start over and one of them loads instead.
+     */
+    String get(String key, Loader loader) throws IOException {
+        while (true) {
+            String cached = getIfPresent(key);
+            if (cached != null) {
+                return cached;
+            }
+
+            // Completed with null if the loader gave up
+            CompletableFuture<String> mine = new CompletableFuture<>();
+            CompletableFuture<String> pending = inFlight.putIfAbsent(key, mine);
+            if (pending != null) {
+                String shared = await(pending);
+                if (shared != null) {
+                    return shared;
+                }
+                continue;
+            }
+            try {
+                // The previous loader may have finished between the lookup and putIfAbsent
+                String value = getIfPresent(key);
+                if (value == null) {
+                    value = loader.load();
+                    put(key, value);
+                }
+                mine.complete(value);
+                return value;
+            } catch (IOException | RuntimeException e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    // Cancelled, not failed; the waiters weren't cancelled and retry.
+                    // Free the slot first so they don't find this future again.
+                    inFlight.remove(key, mine);
+                    mine.complete(null);
+                } else {
+                    mine.completeExceptionally(e);
+                }
+                throw e;
+            } finally {
+                inFlight.remove(key, mine);
+            }
+        }
+    }
+
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    private synchronized String getIfPresent(String key) {
+        CachedResponse entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() >= entry.expiresAt) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    private synchronized void put(String key, String value) {
+        entries.put(key, new CachedResponse(value, System.currentTimeMillis() + ttlMillis));
+    }
+
+    private static String await(CompletableFuture<String> pending) throws IOException {
+        try {
+            return pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Request interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw new IOException(cause.getMessage(), cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static final class CachedResponse {
+        private final String value;
+        private final long expiresAt;
+
+        CachedResponse(String value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.expensemanager.utils;
+
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * A failed AI API call, with what ResilientCaller needs to decide whether and
+ * when to try again. Plain IOExceptions from the network are retried as well;
+ * this is for failures the API reported or that must not be repeated.
+ */
+final class AIServiceException extends IOException {
+    private final int statusCode;
+    private final long retryAfterMillis;
+    private final boolean retryable;
+
+    AIServiceException(String message, int statusCode, long retryAfterMillis, boolean retryable) {
+        super(message);
+        this.statusCode = statusCode;
+        this.retryAfterMillis = retryAfterMillis;
+        this.retryable = retryable;
+    }
+
+    AIServiceException(String message, Throwable cause) {
+        super(message, cause);
+        this.statusCode = 0;
+        this.retryAfterMillis = -1;
+        this.retryable = false;
+    }
+
+    /**
+     * From an unsuccessful response. Rate limiting and server errors are worth
+     * retrying; other client errors (bad key, bad request) are not.
+     */
+    static AIServiceException fromResponse(String message, int statusCode, String retryAfter) {
+        boolean retryable = statusCode == 429 || statusCode == 408 || statusCode >= 500;
+        return new AIServiceException(message, statusCode, parseRetryAfter(retryAfter), retryable);
+    }
+
+    int getStatusCode() {
+        return statusCode;
+    }
+
+    // -1 if the server didn't say
+    long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    boolean isRetryable() {
+        return retryable;
+    }
+
+    // Retry-After is either a number of seconds or an HTTP date
+    static long parseRetryAfter(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return -1;
+        }
+        String trimmed = value.trim();
+        try {
+            return Math.max(0, Long.parseLong(trimmed) * 1000);
+        } catch (NumberFormatException e) {
+            // Not seconds; try the date form
+        }
+        try {
+            ZonedDateTime at = ZonedDateTime.parse(trimmed, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, at.toInstant().toEpochMilli() - System.currentTimeMillis());
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+}
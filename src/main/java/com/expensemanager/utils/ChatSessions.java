@@ -0,0 +1,49 @@
+package com.expensemanager.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The AIChatService of each logged-in user. A user keeps the same service, and
+ * with it the conversation history, for as long as their session lasts; every
+ * service shares AIChatService's single HTTP client, so connections are pooled
+ * and reused across messages and users.
+ */
+public class ChatSessions {
+    private static final Map<Integer, AIChatService> sessions = new ConcurrentHashMap<>();
+
+    private ChatSessions() {}
+
+    /**
+     * Called on login. If a key is configured, starts the user's session and
+     * pre-connects to the API in the background, so the first question
+     * doesn't wait for the handshake.
+     */
+    public static void open(int userId, String apiKey) {
+        if (apiKey == null || apiKey.trim().isEmpty()) {
+            return;
+        }
+        get(userId, apiKey);
+        AIChatService.warmUp();
+    }
+
+    /**
+     * The user's chat service. A new one, with an empty history, replaces the
+     * old one if the API key has changed since.
+     */
+    public static AIChatService get(int userId, String apiKey) {
+        return sessions.compute(userId, (id, current) ->
+            current != null && current.usesKey(apiKey) ? current : new AIChatService(apiKey));
+    }
+
+    // Call when the user's session ends; their history is discarded
+    public static void close(int userId) {
+        sessions.remove(userId);
+    }
+
+    // Ends every session and releases the shared client's connections and threads
+    public static void shutdown() {
+        sessions.clear();
+        AIChatService.shutdownSharedClient();
+    }
+}
@@ -68,6 +68,19 @@ public class ConfigManager {
         saveConfig("Updated Deepseek AI API key");
     }
     
+    public static int getIntProperty(String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Warning: Invalid " + key + " in " + CONFIG_FILE + ", using " + defaultValue);
+            return defaultValue;
+        }
+    }
+    
     // Deprecated: Will be removed in future versions
     @Deprecated
     public static String getOpenAIKey() {
@@ -0,0 +1,377 @@
+package com.expensemanager.utils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded JDBC connection pool used behind {@link DatabaseUtil#getConnection()}.
+ * Callers keep using try-with-resources; closing a borrowed connection hands it
+ * back to the pool instead of closing the physical connection.
+ */
+public class ConnectionPool {
+    private static final long HOUSEKEEPING_INTERVAL_MS = 30000;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeoutMs;
+    private final long idleTimeoutMs;
+    private final long leakThresholdMs;
+    private final int validationTimeoutSeconds;
+
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    // Metrics
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder borrowWaitNanos = new LongAdder();
+    private final AtomicLong maxBorrowWaitNanos = new AtomicLong();
+    private final LongAdder borrowTimeouts = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder evictedCount = new LongAdder();
+    private final LongAdder leakCount = new LongAdder();
+
+    public ConnectionPool(String url, String user, String password, int minSize, int maxSize,
+                          long borrowTimeoutMs, long idleTimeoutMs, long leakThresholdMs,
+                          int validationTimeoutSeconds) {
+        if (maxSize < 1 || minSize < 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMs = borrowTimeoutMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.leakThresholdMs = leakThresholdMs;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep,
+            HOUSEKEEPING_INTERVAL_MS, HOUSEKEEPING_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+        fillToMinimum();
+    }
+
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool has been shut down");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                borrowTimeouts.increment();
+                throw new SQLException("Timed out after " + borrowTimeoutMs +
+                    " ms waiting for a database connection (active=" + borrowed.size() +
+                    ", max=" + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            PooledConnection pooled = takeValidIdle();
+            if (pooled == null) {
+                pooled = createPooledConnection();
+            }
+            pooled.markBorrowed(leakThresholdMs > 0);
+            borrowed.add(pooled);
+
+            long waited = System.nanoTime() - start;
+            borrowCount.increment();
+            borrowWaitNanos.add(waited);
+            maxBorrowWaitNanos.accumulateAndGet(waited, Math::max);
+
+            return pooled.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeValidIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (isValid(pooled.physical)) {
+                return pooled;
+            }
+            destroy(pooled);
+        }
+        return null;
+    }
+
+    private boolean isValid(Connection conn) {
+        try {
+            return !conn.isClosed() && conn.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection createPooledConnection() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, user, password);
+        totalConnections.incrementAndGet();
+        createdCount.increment();
+        return new PooledConnection(physical);
+    }
+
+    private void release(PooledConnection pooled) {
+        borrowed.remove(pooled);
+        try {
+            boolean reusable = !closed && !pooled.physical.isClosed()
+                && totalConnections.get() <= maxSize;
+            if (reusable) {
+                if (!pooled.physical.getAutoCommit()) {
+                    pooled.physical.rollback();
+                    pooled.physical.setAutoCommit(true);
+                }
+                pooled.lastUsed = System.currentTimeMillis();
+                idle.offerFirst(pooled);
+            } else {
+                destroy(pooled);
+            }
+        } catch (SQLException e) {
+            System.err.println("Discarding broken pooled connection: " + e.getMessage());
+            destroy(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void destroy(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing pooled connection: " + e.getMessage());
+        }
+    }
+
+    private void housekeep() {
+        try {
+            long now = System.currentTimeMillis();
+
+            // Evict connections idle for too long, keeping at least minSize around
+            if (idleTimeoutMs > 0) {
+                Iterator<PooledConnection> it = idle.descendingIterator();
+                while (it.hasNext() && totalConnections.get() > minSize) {
+                    PooledConnection pooled = it.next();
+                    if (now - pooled.lastUsed > idleTimeoutMs && idle.remove(pooled)) {
+                        evictedCount.increment();
+                        destroy(pooled);
+                    }
+                }
+            }
+
+            // Report connections held longer than the leak threshold
+            if (leakThresholdMs > 0) {
+                for (PooledConnection pooled : borrowed) {
+                    if (!pooled.leakReported && now - pooled.borrowedAt > leakThresholdMs) {
+                        pooled.leakReported = true;
+                        leakCount.increment();
+                        System.err.println("Possible connection leak: connection held for " +
+                            (now - pooled.borrowedAt) + " ms");
+                        if (pooled.borrowSite != null) {
+                            pooled.borrowSite.printStackTrace();
+                        }
+                    }
+                }
+            }
+
+            fillToMinimum();
+        } catch (RuntimeException e) {
+            System.err.println("Connection pool housekeeping failed: " + e.getMessage());
+        }
+    }
+
+    private void fillToMinimum() {
+        while (!closed && totalConnections.get() < minSize) {
+            try {
+                PooledConnection pooled = createPooledConnection();
+                pooled.lastUsed = System.currentTimeMillis();
+                idle.offerLast(pooled);
+            } catch (SQLException e) {
+                System.err.println("Could not pre-open database connection: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    public Stats getStats() {
+        long borrows = borrowCount.sum();
+        return new Stats(
+            borrowed.size(),
+            idle.size(),
+            totalConnections.get(),
+            maxSize,
+            permits.getQueueLength(),
+            borrows,
+            borrows == 0 ? 0 : borrowWaitNanos.sum() / borrows,
+            maxBorrowWaitNanos.get(),
+            borrowTimeouts.sum(),
+            createdCount.sum(),
+            evictedCount.sum(),
+            leakCount.sum()
+        );
+    }
+
+    public void shutdown() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+    }
+
+    /**
+     * Point-in-time view of the pool, used to size it against DAO traffic.
+     */
+    public static class Stats {
+        private final int active;
+        private final int idle;
+        private final int total;
+        private final int maxSize;
+        private final int waitingThreads;
+        private final long borrowCount;
+        private final long avgBorrowWaitNanos;
+        private final long maxBorrowWaitNanos;
+        private final long borrowTimeouts;
+        private final long createdCount;
+        private final long evictedCount;
+        private final long leakCount;
+
+        Stats(int active, int idle, int total, int maxSize, int waitingThreads, long borrowCount,
+              long avgBorrowWaitNanos, long maxBorrowWaitNanos, long borrowTimeouts,
+              long createdCount, long evictedCount, long leakCount) {
+            this.active = active;
+            this.idle = idle;
+            this.total = total;
+            this.maxSize = maxSize;
+            this.waitingThreads = waitingThreads;
+            this.borrowCount = borrowCount;
+            this.avgBorrowWaitNanos = avgBorrowWaitNanos;
+            this.maxBorrowWaitNanos = maxBorrowWaitNanos;
+            this.borrowTimeouts = borrowTimeouts;
+            this.createdCount = createdCount;
+            this.evictedCount = evictedCount;
+            this.leakCount = leakCount;
+        }
+
+        public int getActive() { return active; }
+        public int getIdle() { return idle; }
+        public int getTotal() { return total; }
+        public int getMaxSize() { return maxSize; }
+        public int getWaitingThreads() { return waitingThreads; }
+        public long getBorrowCount() { return borrowCount; }
+        public long getAvgBorrowWaitNanos() { return avgBorrowWaitNanos; }
+        public long getMaxBorrowWaitNanos() { return maxBorrowWaitNanos; }
+        public long getBorrowTimeouts() { return borrowTimeouts; }
+        public long getCreatedCount() { return createdCount; }
+        public long getEvictedCount() { return evictedCount; }
+        public long getLeakCount() { return leakCount; }
+
+        @Override
+        public String toString() {
+            return String.format("active=%d idle=%d total=%d/%d waiting=%d borrows=%d " +
+                    "avgWait=%.3fms maxWait=%.3fms timeouts=%d created=%d evicted=%d leaks=%d",
+                active, idle, total, maxSize, waitingThreads, borrowCount,
+                avgBorrowWaitNanos / 1_000_000.0, maxBorrowWaitNanos / 1_000_000.0,
+                borrowTimeouts, createdCount, evictedCount, leakCount);
+        }
+    }
+
+    private class PooledConnection {
+        private final Connection physical;
+        private volatile long lastUsed;
+        private volatile long borrowedAt;
+        private volatile Throwable borrowSite;
+        private volatile boolean leakReported;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        void markBorrowed(boolean captureSite) {
+            borrowedAt = System.currentTimeMillis();
+            borrowSite = captureSite ? new Throwable("Connection borrowed here") : null;
+            leakReported = false;
+        }
+
+        Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new Handle(this));
+        }
+    }
+
+    // Per-borrow handle so a stale reference can't touch a connection someone else now owns
+    private class Handle implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean returned;
+
+        Handle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + pooled.physical + "]";
+                default:
+                    if (returned) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                    try {
+                        return method.invoke(pooled.physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+}
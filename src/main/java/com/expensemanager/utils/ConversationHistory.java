@@ -0,0 +1,188 @@
+package com.expensemanager.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import org.json.JSONObject;
+
+/**
+ * Chat history kept within a token budget. The system prompt and the most
+ * recent turns are sent verbatim; once the budget is exceeded the oldest
+ * turns are folded into a short rolling summary, one line per turn, which
+ * itself keeps only its newest lines if it grows too long.
+ *
+ * The messages array is kept serialized: adding a turn appends it to the
+ * cached JSON, and only a compaction rebuilds it, so a request costs the
+ * serialization of the new message rather than the whole conversation.
+ */
+final class ConversationHistory {
+    // Turns never folded into the summary, however tight the budget
+    private static final int MIN_RECENT_TURNS = 2;
+    // Share of the budget the summary may use
+    private static final int SUMMARY_BUDGET_DIVISOR = 4;
+    // Role and framing tokens the API adds to every message
+    private static final int MESSAGE_OVERHEAD_TOKENS = 4;
+    private static final int SUMMARY_QUESTION_CHARS = 120;
+    private static final int SUMMARY_ANSWER_CHARS = 200;
+
+    private final int tokenBudget;
+    private final String systemPrompt;
+    private final int systemTokens;
+    private final Deque<Turn> turns = new ArrayDeque<>();
+    private final Deque<String> summaryLines = new ArrayDeque<>();
+    private int turnTokens;
+    private int summaryTokens;
+
+    // "[" followed by every message so far, without the closing bracket
+    private final StringBuilder serializedPrefix = new StringBuilder();
+
+    ConversationHistory(String systemPrompt, int tokenBudget) {
+        if (tokenBudget < 1) {
+            throw new IllegalArgumentException("Token budget must be positive: " + tokenBudget);
+        }
+        this.systemPrompt = systemPrompt;
+        this.systemTokens = estimateTokens(systemPrompt) + MESSAGE_OVERHEAD_TOKENS;
+        this.tokenBudget = tokenBudget;
+        rebuildPrefix();
+    }
+
+    /**
+     * The JSON messages array for a request: the history followed by the
+     * given user message.
+     */
+    String serializeWith(String userContent) {
+        return new StringBuilder(serializedPrefix.length() + userContent.length() + 48)
+            .append(serializedPrefix)
+            .append(',')
+            .append(message("user", userContent))
+            .append(']')
+            .toString();
+    }
+
+    /**
+     * Records a finished exchange. The question is kept separately from the
+     * user message, which may carry data that is useless once stale.
+     */
+    void addTurn(String question, String userContent, String answer) {
+        Turn turn = new Turn(question, userContent, answer);
+        turns.addLast(turn);
+        turnTokens += turn.tokens;
+        serializedPrefix.append(',').append(message("user", userContent))
+            .append(',').append(message("assistant", answer));
+        // Leave room for a next message of about the same size
+        compact(estimateTokens(userContent) + MESSAGE_OVERHEAD_TOKENS);
+    }
+
+    // Questions of the verbatim turns, newest first
+    List<String> recentQuestions() {
+        List<String> questions = new ArrayList<>(turns.size());
+        turns.descendingIterator().forEachRemaining(turn -> questions.add(turn.question));
+        return questions;
+    }
+
+    void clear() {
+        turns.clear();
+        summaryLines.clear();
+        turnTokens = 0;
+        summaryTokens = 0;
+        rebuildPrefix();
+    }
+
+    int estimatedTokens() {
+        return systemTokens + summaryTokens + turnTokens;
+    }
+
+    /**
+     * Rough BPE token count without a vocabulary: runs of letters or digits
+     * cost one token per four characters, every other visible character one
+     * token, and whitespace nothing. Close enough to budget with.
+     */
+    static int estimateTokens(String text) {
+        int tokens = 0;
+        int run = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                run++;
+                continue;
+            }
+            tokens += (run + 3) / 4;
+            run = 0;
+            if (!Character.isWhitespace(c)) {
+                tokens++;
+            }
+        }
+        return tokens + (run + 3) / 4;
+    }
+
+    private void compact(int reserve) {
+        if (estimatedTokens() + reserve <= tokenBudget || turns.size() <= MIN_RECENT_TURNS) {
+            return;
+        }
+        while (estimatedTokens() + reserve > tokenBudget && turns.size() > MIN_RECENT_TURNS) {
+            Turn oldest = turns.removeFirst();
+            turnTokens -= oldest.tokens;
+            String line = summarize(oldest);
+            summaryLines.addLast(line);
+            summaryTokens += estimateTokens(line) + 1;
+        }
+        int summaryBudget = tokenBudget / SUMMARY_BUDGET_DIVISOR;
+        while (summaryTokens > summaryBudget && summaryLines.size() > 1) {
+            summaryTokens -= estimateTokens(summaryLines.removeFirst()) + 1;
+        }
+        rebuildPrefix();
+    }
+
+    private void rebuildPrefix() {
+        serializedPrefix.setLength(0);
+        serializedPrefix.append('[').append(message("system", systemPrompt));
+        if (!summaryLines.isEmpty()) {
+            serializedPrefix.append(',').append(message("system",
+                "Summary of the earlier conversation:\n" + String.join("\n", summaryLines)));
+        }
+        for (Turn turn : turns) {
+            serializedPrefix.append(',').append(message("user", turn.userContent))
+                .append(',').append(message("assistant", turn.answer));
+        }
+    }
+
+    private static String summarize(Turn turn) {
+        return "- Q: " + shorten(turn.question, SUMMARY_QUESTION_CHARS)
+            + " A: " + shorten(firstSentence(turn.answer), SUMMARY_ANSWER_CHARS);
+    }
+
+    private static String firstSentence(String text) {
+        String flat = text.replaceAll("\\s+", " ").trim();
+        for (int i = 0; i < flat.length() - 1; i++) {
+            char c = flat.charAt(i);
+            if ((c == '.' || c == '!' || c == '?') && flat.charAt(i + 1) == ' ') {
+                return flat.substring(0, i + 1);
+            }
+        }
+        return flat;
+    }
+
+    private static String shorten(String text, int maxChars) {
+        String flat = text.replaceAll("\\s+", " ").trim();
+        return flat.length() <= maxChars ? flat : flat.substring(0, maxChars - 3) + "...";
+    }
+
+    private static String message(String role, String content) {
+        return new JSONObject().put("role", role).put("content", content).toString();
+    }
+
+    private static final class Turn {
+        private final String question;
+        private final String userContent;
+        private final String answer;
+        private final int tokens;
+
+        Turn(String question, String userContent, String answer) {
+            this.question = question;
+            this.userContent = userContent;
+            this.answer = answer;
+            this.tokens = estimateTokens(userContent) + estimateTokens(answer) + 2 * MESSAGE_OVERHEAD_TOKENS;
+        }
+    }
+}
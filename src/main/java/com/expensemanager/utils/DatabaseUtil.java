@@ -1,7 +1,9 @@
 package com.expensemanager.utils;
 
+import com.expensemanager.dao.ExpenseRollupDAO;
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.io.FileInputStream;
@@ -10,7 +12,11 @@ import java.util.Properties;
 
 public class DatabaseUtil {
     private static final String CONFIG_FILE = "database/config.properties";
-    private static Connection connection;
+    private static final String[] DEFAULT_CATEGORIES = {
+        "Food", "Transport", "Housing", "Entertainment", "Shopping",
+        "Healthcare", "Education", "Bills", "Travel", "Others"
+    };
+    private static ConnectionPool pool;
     private static Properties props;
 
     static {
@@ -20,6 +26,8 @@ public class DatabaseUtil {
         } catch (IOException e) {
             System.err.println("Warning: Could not load config file. Using default settings.");
             // Default settings
+            props.setProperty("db.type", "h2");
+            props.setProperty("db.file", "database/expense_manager");
             props.setProperty("db.host", "localhost");
             props.setProperty("db.port", "3306");
             props.setProperty("db.name", "expense_manager");
@@ -29,22 +37,63 @@ public class DatabaseUtil {
     }
 
     public static Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            String host = props.getProperty("db.host");
-            String port = props.getProperty("db.port");
-            String dbName = props.getProperty("db.name");
-            String user = props.getProperty("db.user");
-            String password = props.getProperty("db.password");
+        return getPool().getConnection();
+    }
+
+    public static synchronized ConnectionPool getPool() {
+        if (pool == null) {
+            String host = getProperty("db.host");
+            String port = getProperty("db.port");
+            String dbName = getProperty("db.name");
+            String user = getProperty("db.user");
+            String password = getProperty("db.password");
 
-            String url = String.format("jdbc:mysql://%s:%s/%s",
-                                     host, port, dbName);
+            // A full JDBC URL wins over the settings of the selected backend
+            String url = getProperty("db.url");
+            if (url == null || url.trim().isEmpty()) {
+                url = getDialect().buildUrl(host, port, dbName, getProperty("db.file"));
+            }
 
-            connection = DriverManager.getConnection(url, user, password);
+            pool = new ConnectionPool(url, user, password,
+                getIntProperty("db.pool.initialSize", 2),
+                getIntProperty("db.pool.maxSize", 10),
+                getIntProperty("db.pool.timeout", 30000),
+                getIntProperty("db.pool.idleTimeout", 600000),
+                getIntProperty("db.pool.leakDetectionThreshold", 60000),
+                getIntProperty("db.pool.validationTimeout", 5));
+        }
+        return pool;
+    }
+
+    public static SqlDialect getDialect() {
+        return SqlDialect.fromName(getProperty("db.type"));
+    }
+
+    public static ConnectionPool.Stats getPoolStats() {
+        return getPool().getStats();
+    }
+
+    // System properties (-Ddb.url=...) override the config file
+    private static String getProperty(String key) {
+        return System.getProperty(key, props.getProperty(key));
+    }
+
+    private static int getIntProperty(String key, int defaultValue) {
+        String value = getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Warning: Invalid value for " + key + ": " + value);
+            return defaultValue;
         }
-        return connection;
     }
 
     public static void initializeDatabase() {
+        String options = getDialect().tableOptions();
+
         try (Connection conn = getConnection();
              Statement stmt = conn.createStatement()) {
             
@@ -58,7 +107,7 @@ public class DatabaseUtil {
                 "full_name VARCHAR(100), " +
                 "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
                 "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP" +
-                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4"
+                ")" + options
             );
 
             // Create Categories table
@@ -69,9 +118,38 @@ public class DatabaseUtil {
                 "description VARCHAR(255), " +
                 "icon_name VARCHAR(50), " +
                 "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
-                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4"
+                ")" + options
+            );
+
+            // Create Recurring Expenses table
+            stmt.execute(
+                "CREATE TABLE IF NOT EXISTS recurring_expenses (" +
+                "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                "user_id INT NOT NULL, " +
+                "category_id INT NOT NULL, " +
+                "amount DECIMAL(10,2) NOT NULL, " +
+                "description VARCHAR(255), " +
+                "frequency VARCHAR(20) NOT NULL, " +
+                "start_date DATE NOT NULL, " +
+                "end_date DATE NOT NULL, " +
+                "is_active BOOLEAN DEFAULT TRUE, " +
+                "next_due_date DATE NULL, " +
+                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                "FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE, " +
+                "FOREIGN KEY (category_id) REFERENCES categories(id), " +
+                "INDEX idx_active_next_due (is_active, next_due_date)" +
+                ")" + options
             );
 
+            // Databases created before next_due_date existed (H2 or MySQL); the scheduler fills it in.
+            // Column and index are checked separately so an interrupted migration is finished next start
+            if (!hasColumn(conn, "recurring_expenses", "next_due_date")) {
+                stmt.execute("ALTER TABLE recurring_expenses ADD COLUMN next_due_date DATE NULL");
+            }
+            if (!hasIndex(conn, "recurring_expenses", "idx_active_next_due")) {
+                stmt.execute("CREATE INDEX idx_active_next_due ON recurring_expenses (is_active, next_due_date)");
+            }
+
             // Create Expenses table
             stmt.execute(
                 "CREATE TABLE IF NOT EXISTS expenses (" +
@@ -83,14 +161,70 @@ public class DatabaseUtil {
                 "date DATE NOT NULL, " +
                 "payment_method VARCHAR(50), " +
                 "is_recurring BOOLEAN DEFAULT FALSE, " +
+                "recurring_expense_id INT NULL, " +
                 "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
                 "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP, " +
                 "FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE, " +
                 "FOREIGN KEY (category_id) REFERENCES categories(id) ON DELETE RESTRICT, " +
-                "INDEX idx_user_date (user_id, date)" +
-                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4"
+                "FOREIGN KEY (recurring_expense_id) REFERENCES recurring_expenses(id), " +
+                "INDEX idx_user_date (user_id, date), " +
+                "INDEX idx_user_category_date (user_id, category_id, date), " +
+                "INDEX idx_recurring (recurring_expense_id)" +
+                ")" + options
+            );
+
+            // Databases created before expenses were linked to their recurring schedule;
+            // the index keeps the scheduler's per-schedule lookups off a full table scan
+            if (!hasColumn(conn, "expenses", "recurring_expense_id")) {
+                stmt.execute("ALTER TABLE expenses ADD COLUMN recurring_expense_id INT NULL");
+            }
+            if (!hasIndex(conn, "expenses", "idx_recurring")) {
+                stmt.execute("CREATE INDEX idx_recurring ON expenses (recurring_expense_id)");
+            }
+
+            // Databases created before budget lookups by category and date
+            if (!hasIndex(conn, "expenses", "idx_user_category_date")) {
+                stmt.execute("CREATE INDEX idx_user_category_date ON expenses (user_id, category_id, date)");
+            }
+
+            // Create Budgets table
+            stmt.execute(
+                "CREATE TABLE IF NOT EXISTS budgets (" +
+                "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                "user_id INT NOT NULL, " +
+                "category_id INT NOT NULL, " +
+                "amount DECIMAL(10,2) NOT NULL, " +
+                "start_date DATE NOT NULL, " +
+                "end_date DATE NOT NULL, " +
+                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                "FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE, " +
+                "FOREIGN KEY (category_id) REFERENCES categories(id) ON DELETE CASCADE, " +
+                "UNIQUE KEY unique_budget (user_id, category_id, start_date, end_date)" +
+                ")" + options
             );
 
+            // Create Expense Rollups table (running totals maintained by ExpenseDAO)
+            boolean rollupsExisted = hasTable(conn, "expense_rollups");
+            stmt.execute(
+                "CREATE TABLE IF NOT EXISTS expense_rollups (" +
+                "user_id INT NOT NULL, " +
+                "category_id INT NOT NULL, " +
+                "month_start DATE NOT NULL, " +
+                "total DECIMAL(14,2) NOT NULL DEFAULT 0, " +
+                "txn_count INT NOT NULL DEFAULT 0, " +
+                "PRIMARY KEY (user_id, category_id, month_start), " +
+                "FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE, " +
+                "FOREIGN KEY (category_id) REFERENCES categories(id) ON DELETE RESTRICT" +
+                ")" + options
+            );
+
+            insertDefaultCategories(conn);
+
+            // Databases created before rollups existed already have expenses to total
+            if (!rollupsExisted) {
+                new ExpenseRollupDAO().rebuildAll();
+            }
+
             System.out.println("Database tables created successfully!");
 
         } catch (SQLException e) {
@@ -99,13 +233,50 @@ public class DatabaseUtil {
         }
     }
 
-    public static void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
+    private static boolean hasTable(Connection conn, String table) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getTables(conn.getCatalog(), null, table, null)) {
+            return rs.next();
+        }
+    }
+
+    private static boolean hasColumn(Connection conn, String table, String column) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getColumns(conn.getCatalog(), null, table, column)) {
+            return rs.next();
+        }
+    }
+
+    private static boolean hasIndex(Connection conn, String table, String index) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getIndexInfo(conn.getCatalog(), null, table, false, false)) {
+            while (rs.next()) {
+                if (index.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                    return true;
+                }
             }
-        } catch (SQLException e) {
-            System.err.println("Error closing database connection: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // A fresh database has no categories, and expenses cannot be added without them
+    private static void insertDefaultCategories(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM categories")) {
+            if (rs.next() && rs.getInt(1) > 0) {
+                return;
+            }
+        }
+        try (PreparedStatement insert = conn.prepareStatement("INSERT INTO categories (name) VALUES (?)")) {
+            for (String name : DEFAULT_CATEGORIES) {
+                insert.setString(1, name);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    public static synchronized void closeConnection() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
         }
     }
-} 
\ No newline at end of file
+}
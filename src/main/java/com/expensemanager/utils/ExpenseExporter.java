@@ -0,0 +1,147 @@
+package com.expensemanager.utils;
+
+import com.expensemanager.dao.ExpenseDAO;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+/**
+ * Writes a user's whole expense history to a CSV or XLSX file. Rows come from
+ * ExpenseDAO.forEachExpense's streaming cursor and are written out as they
+ * arrive, so neither the result set nor the file is ever held in memory.
+ */
+public class ExpenseExporter {
+    private static final String[] HEADER = {"Date", "Category", "Description", "Amount"};
+    // Rows written between progress updates
+    private static final int PROGRESS_INTERVAL = 1000;
+
+    private final ExpenseDAO expenseDAO;
+
+    public enum Format {
+        CSV, XLSX;
+
+        // XLSX for .xlsx files, CSV for anything else
+        public static Format forFile(Path file) {
+            return file.getFileName().toString().toLowerCase().endsWith(".xlsx") ? XLSX : CSV;
+        }
+    }
+
+    public interface ProgressListener {
+        /**
+         * Called every thousand rows and once at the end, on the exporting
+         * thread. The total is read from the rollups up front and is only an
+         * estimate if expenses change during the export.
+         */
+        void progress(long written, long total);
+    }
+
+    public ExpenseExporter() {
+        this(new ExpenseDAO());
+    }
+
+    public ExpenseExporter(ExpenseDAO expenseDAO) {
+        this.expenseDAO = expenseDAO;
+    }
+
+    /**
+     * Exports the user's expenses and returns the number of rows written.
+     * A partly written file is deleted if the export fails.
+     */
+    public long export(int userId, Path file, ProgressListener listener) throws IOException, SQLException {
+        long total = listener != null ? expenseDAO.getExpenseCount(userId) : 0;
+        Format format = Format.forFile(file);
+        long written;
+        try {
+            written = format == Format.XLSX ? exportXlsx(userId, file, total, listener) : exportCsv(userId, file, total, listener);
+        } catch (UncheckedIOException e) {
+            Files.deleteIfExists(file);
+            throw e.getCause();
+        } catch (IOException | SQLException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        if (listener != null) {
+            listener.progress(written, Math.max(written, total));
+        }
+        return written;
+    }
+
+    private long exportCsv(int userId, Path file, long total, ProgressListener listener) throws IOException, SQLException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            // Byte order mark so Excel opens the file as UTF-8
+            out.write('\uFEFF');
+            out.write(String.join(",", HEADER));
+            out.write("\r\n");
+            long[] written = {0};
+            expenseDAO.forEachExpense(userId, row -> {
+                try {
+                    out.write(row.getLocalDate("date").toString());
+                    out.write(',');
+                    out.write(csvField(row.getString("category")));
+                    out.write(',');
+                    out.write(csvField(row.getString("description")));
+                    out.write(',');
+                    out.write(row.getBigDecimal("amount").toPlainString());
+                    out.write("\r\n");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                reportProgress(++written[0], total, listener);
+            });
+            return written[0];
+        }
+    }
+
+    private long exportXlsx(int userId, Path file, long total, ProgressListener listener) throws IOException, SQLException {
+        try (XlsxStreamWriter out = new XlsxStreamWriter(file, "Expenses")) {
+            out.writeHeader(HEADER);
+            long[] written = {0};
+            expenseDAO.forEachExpense(userId, row -> {
+                LocalDate date = row.getLocalDate("date");
+                String category = row.getString("category");
+                String description = row.getString("description");
+                BigDecimal amount = row.getBigDecimal("amount");
+                try {
+                    out.startRow();
+                    out.writeDate(date);
+                    out.writeString(category);
+                    out.writeString(description);
+                    out.writeAmount(amount);
+                    out.endRow();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                reportProgress(++written[0], total, listener);
+            });
+            return written[0];
+        }
+    }
+
+    private static void reportProgress(long written, long total, ProgressListener listener) {
+        if (listener != null && written % PROGRESS_INTERVAL == 0) {
+            listener.progress(written, Math.max(written, total));
+        }
+    }
+
+    // Quotes fields containing separators, quotes or line breaks, and keeps
+    // spreadsheet apps from running text that starts like a formula
+    private static String csvField(String value) {
+        if (value == null || value.isEmpty()) {
+            return "";
+        }
+        char first = value.charAt(0);
+        if (first == '=' || first == '+' || first == '-' || first == '@') {
+            value = "'" + value;
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+}
@@ -0,0 +1,285 @@
+package com.expensemanager.utils;
+
+import com.expensemanager.dao.BudgetTracker;
+import com.expensemanager.dao.CategoryCache;
+import com.expensemanager.dao.DataVersions;
+import com.expensemanager.dao.ExpenseDAO;
+import com.expensemanager.models.Budget;
+import com.expensemanager.models.FinancialContext;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One FinancialContext per user, rebuilt only when the user's data version
+ * has moved (an expense or budget was written) or the day has changed. Chat
+ * turns in between reuse the same snapshot, and with it the same prompt text.
+ *
+ * Building reads the rollups for totals and trends and streams the last six
+ * months of expenses once for merchants and outliers.
+ */
+public class FinancialContextCache {
+    private static final int TREND_MONTHS = 6;
+    private static final int MERCHANT_DAYS = 90;
+    private static final int HISTORY_DAYS = 180;
+    private static final int RECENT_DAYS = 30;
+    private static final int TOP_COUNT = 5;
+    private static final int MAX_ANOMALIES = 3;
+    // An expense is unusual beyond this many standard deviations above its category's mean
+    private static final double OUTLIER_SIGMAS = 3.0;
+    // A category is unusual when this month already exceeds its recent monthly average by this factor
+    private static final BigDecimal SPIKE_FACTOR = new BigDecimal("1.5");
+    private static final int MIN_CATEGORY_SAMPLES = 5;
+
+    private static final Map<Integer, FinancialContext> contexts = new ConcurrentHashMap<>();
+    private static final ExpenseDAO expenseDAO = new ExpenseDAO();
+
+    private FinancialContextCache() {}
+
+    public static FinancialContext get(int userId) throws SQLException {
+        FinancialContext cached = contexts.get(userId);
+        LocalDate today = LocalDate.now();
+        // Read before building, so a write that lands mid-build leaves the result stale
+        long version = DataVersions.get(userId);
+        if (cached != null && cached.getDataVersion() == version && cached.getAsOf().equals(today)) {
+            return cached;
+        }
+        FinancialContext context = build(userId, version, today);
+        contexts.put(userId, context);
+        return context;
+    }
+
+    private static FinancialContext build(int userId, long version, LocalDate today) throws SQLException {
+        LocalDate thisMonth = today.withDayOfMonth(1);
+        LocalDate firstTrendMonth = thisMonth.minusMonths(TREND_MONTHS - 1);
+
+        Map<LocalDate, BigDecimal> monthly = new LinkedHashMap<>();
+        for (LocalDate month = firstTrendMonth; !month.isAfter(thisMonth); month = month.plusMonths(1)) {
+            monthly.put(month, BigDecimal.ZERO);
+        }
+        monthly.putAll(expenseDAO.getMonthlyTotals(userId, firstTrendMonth, thisMonth));
+
+        Map<String, BigDecimal> thisMonthByCategory = expenseDAO.getExpensesByCategory(userId, thisMonth, thisMonth);
+        Map<String, BigDecimal> priorByCategory = expenseDAO.getExpensesByCategory(userId,
+            thisMonth.minusMonths(3), thisMonth.minusMonths(1));
+
+        List<Budget> activeBudgets = new ArrayList<>();
+        for (Budget budget : BudgetTracker.getBudgets(userId)) {
+            if (budget.covers(today)) {
+                activeBudgets.add(budget);
+            }
+        }
+        activeBudgets.sort((a, b) -> Double.compare(b.getPercentUsed(), a.getPercentUsed()));
+
+        History history = new History(today);
+        expenseDAO.forEachExpenseBetween(userId, today.minusDays(HISTORY_DAYS - 1), today, row ->
+            history.add(row.getLocalDate("date"), row.getInt("category_id"), row.getBigDecimal("amount"),
+                row.getString("description")));
+
+        List<String> anomalies = history.outliers();
+        anomalies.addAll(spikes(thisMonthByCategory, priorByCategory));
+        if (anomalies.size() > MAX_ANOMALIES) {
+            anomalies = new ArrayList<>(anomalies.subList(0, MAX_ANOMALIES));
+        }
+
+        BigDecimal monthToDate = BigDecimal.ZERO;
+        for (BigDecimal total : thisMonthByCategory.values()) {
+            monthToDate = monthToDate.add(total);
+        }
+
+        return new FinancialContext(today, version, expenseDAO.getTotalExpenses(userId),
+            expenseDAO.getExpenseCount(userId), monthToDate, monthly, top(thisMonthByCategory),
+            top(expenseDAO.getExpensesByCategory(userId)), history.topMerchants(), MERCHANT_DAYS,
+            activeBudgets, anomalies);
+    }
+
+    // Categories already spending well above their average over the previous three months
+    private static List<String> spikes(Map<String, BigDecimal> thisMonth, Map<String, BigDecimal> prior) {
+        List<String> spikes = new ArrayList<>();
+        for (Map.Entry<String, BigDecimal> entry : thisMonth.entrySet()) {
+            BigDecimal average = prior.getOrDefault(entry.getKey(), BigDecimal.ZERO)
+                .divide(BigDecimal.valueOf(3), 2, RoundingMode.HALF_UP);
+            if (average.signum() > 0 && entry.getValue().compareTo(average.multiply(SPIKE_FACTOR)) > 0) {
+                spikes.add(entry.getKey() + " this month " + FinancialContext.whole(entry.getValue())
+                    + " vs usual " + FinancialContext.whole(average));
+            }
+        }
+        return spikes;
+    }
+
+    // The rollups return categories largest first
+    private static Map<String, BigDecimal> top(Map<String, BigDecimal> totals) {
+        Map<String, BigDecimal> top = new LinkedHashMap<>();
+        for (Map.Entry<String, BigDecimal> entry : totals.entrySet()) {
+            if (top.size() == TOP_COUNT) {
+                break;
+            }
+            top.put(entry.getKey(), entry.getValue());
+        }
+        return top;
+    }
+
+    /**
+     * Accumulates streamed expenses: merchant totals over the merchant
+     * window, per-category amount statistics over the whole history, and the
+     * few largest recent expenses per category to test against them.
+     */
+    private static final class History {
+        private final LocalDate merchantStart;
+        private final LocalDate recentStart;
+        private final Map<String, MerchantTotal> merchants = new HashMap<>();
+        private final Map<Integer, CategoryStats> categories = new HashMap<>();
+
+        History(LocalDate today) {
+            this.merchantStart = today.minusDays(MERCHANT_DAYS - 1);
+            this.recentStart = today.minusDays(RECENT_DAYS - 1);
+        }
+
+        void add(LocalDate date, int categoryId, BigDecimal amount, String description) {
+            categories.computeIfAbsent(categoryId, id -> new CategoryStats()).add(date, amount, description, recentStart);
+            if (!date.isBefore(merchantStart)) {
+                String merchant = merchantName(description);
+                if (merchant != null) {
+                    MerchantTotal total = merchants.computeIfAbsent(merchant, name -> new MerchantTotal());
+                    total.amount = total.amount.add(amount);
+                    total.count++;
+                }
+            }
+        }
+
+        List<FinancialContext.Merchant> topMerchants() {
+            List<Map.Entry<String, MerchantTotal>> ranked = new ArrayList<>(merchants.entrySet());
+            ranked.sort((a, b) -> b.getValue().amount.compareTo(a.getValue().amount));
+            List<FinancialContext.Merchant> top = new ArrayList<>(TOP_COUNT);
+            for (Map.Entry<String, MerchantTotal> entry : ranked.subList(0, Math.min(TOP_COUNT, ranked.size()))) {
+                top.add(new FinancialContext.Merchant(entry.getKey(), entry.getValue().amount, entry.getValue().count));
+            }
+            return top;
+        }
+
+        // Largest first, by how far above their category's usual amount they are
+        List<String> outliers() throws SQLException {
+            List<Outlier> found = new ArrayList<>();
+            for (Map.Entry<Integer, CategoryStats> entry : categories.entrySet()) {
+                CategoryStats stats = entry.getValue();
+                if (stats.count < MIN_CATEGORY_SAMPLES) {
+                    continue;
+                }
+                double mean = stats.sum / stats.count;
+                double deviation = Math.sqrt(Math.max(0, stats.sumOfSquares / stats.count - mean * mean));
+                for (Recent recent : stats.largestRecent) {
+                    double amount = recent.amount.doubleValue();
+                    if (amount > mean + OUTLIER_SIGMAS * deviation && amount > 2 * mean) {
+                        String text = recent.date + " " + CategoryCache.getName(entry.getKey()) + " "
+                            + FinancialContext.whole(recent.amount)
+                            + (recent.description != null && !recent.description.trim().isEmpty()
+                                ? " \"" + recent.description.trim() + "\"" : "")
+                            + String.format(" (usual %.0f)", mean);
+                        found.add(new Outlier(amount / mean, text));
+                    }
+                }
+            }
+            found.sort((a, b) -> Double.compare(b.ratio, a.ratio));
+            List<String> outliers = new ArrayList<>(found.size());
+            for (Outlier outlier : found) {
+                outliers.add(outlier.text);
+            }
+            return outliers;
+        }
+    }
+
+    private static final class Outlier {
+        private final double ratio;
+        private final String text;
+
+        Outlier(double ratio, String text) {
+            this.ratio = ratio;
+            this.text = text;
+        }
+    }
+
+    private static final class MerchantTotal {
+        private BigDecimal amount = BigDecimal.ZERO;
+        private int count;
+    }
+
+    private static final class CategoryStats {
+        private static final int KEEP_RECENT = 3;
+
+        private double sum;
+        private double sumOfSquares;
+        private int count;
+        private final List<Recent> largestRecent = new ArrayList<>(KEEP_RECENT + 1);
+
+        void add(LocalDate date, BigDecimal amount, String description, LocalDate recentStart) {
+            double value = amount.doubleValue();
+            sum += value;
+            sumOfSquares += value * value;
+            count++;
+            if (date.isBefore(recentStart)) {
+                return;
+            }
+            largestRecent.add(new Recent(date, amount, description));
+            if (largestRecent.size() > KEEP_RECENT) {
+                largestRecent.sort((a, b) -> b.amount.compareTo(a.amount));
+                largestRecent.remove(KEEP_RECENT);
+            }
+        }
+    }
+
+    private static final class Recent {
+        private final LocalDate date;
+        private final BigDecimal amount;
+        private final String description;
+
+        Recent(LocalDate date, BigDecimal amount, String description) {
+            this.date = date;
+            this.amount = amount;
+            this.description = description;
+        }
+    }
+
+    /**
+     * Up to two leading words of a description, letters only, ending at the
+     * first digit or symbol, so "STARBUCKS #1234 SEATTLE" and "Starbucks 0981"
+     * count as one merchant. Null if there are no letters.
+     */
+    static String merchantName(String description) {
+        if (description == null) {
+            return null;
+        }
+        StringBuilder name = new StringBuilder();
+        int words = 0;
+        boolean inWord = false;
+        for (int i = 0; i < description.length(); i++) {
+            char c = description.charAt(i);
+            if (Character.isLetter(c)) {
+                if (!inWord) {
+                    if (words == 2) {
+                        break;
+                    }
+                    if (words > 0) {
+                        name.append(' ');
+                    }
+                    name.append(Character.toUpperCase(c));
+                    words++;
+                    inWord = true;
+                } else {
+                    name.append(Character.toLowerCase(c));
+                }
+            } else if (Character.isWhitespace(c)) {
+                inWord = false;
+            } else if (c != '\'' && words > 0) {
+                break;
+            }
+        }
+        return words > 0 ? name.toString() : null;
+    }
+}
@@ -0,0 +1,177 @@
+package com.expensemanager.utils;
+
+import com.expensemanager.dao.ExpenseDAO;
+import com.expensemanager.models.Expense;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Recognises statement rows that are already recorded, so importing
+ * overlapping statements doesn't create the same expense twice.
+ *
+ * Each expense is reduced to a 64-bit fingerprint of its date, amount and
+ * normalized description. The fingerprints of the user's existing expenses
+ * are loaded a month at a time, the first time an imported row falls in that
+ * month, and kept with a count in an open-addressing table, so checking a row
+ * is a couple of array probes rather than a query. Counts matter: two equal
+ * coffees on the same day are two expenses, and a statement row only matches
+ * an existing expense that no earlier row has matched yet.
+ *
+ * An exact table is used rather than a Bloom filter because a false positive
+ * here would silently drop a real expense.
+ */
+final class ImportDeduplicator {
+    private final ExpenseDAO expenseDAO;
+    private final int userId;
+    private final int dayTolerance;
+    private final ImportProfile.DescriptionMatch descriptionMatch;
+    private final int prefixLength;
+    private final Set<YearMonth> loadedMonths = new HashSet<>();
+    private final FingerprintCounts existing = new FingerprintCounts();
+
+    ImportDeduplicator(ExpenseDAO expenseDAO, int userId, ImportProfile profile) {
+        this.expenseDAO = expenseDAO;
+        this.userId = userId;
+        this.dayTolerance = profile.getDedupDayTolerance();
+        this.descriptionMatch = profile.getDedupDescription();
+        this.prefixLength = profile.getDedupPrefixLength();
+    }
+
+    /**
+     * True if the expense matches an existing one that hasn't been matched
+     * yet, which is then used up. Dates within the profile's day tolerance
+     * match, the exact date first.
+     */
+    boolean isDuplicate(Expense expense) throws SQLException {
+        LocalDate date = expense.getDate();
+        for (int offset = -dayTolerance; offset <= dayTolerance; offset++) {
+            ensureLoaded(YearMonth.from(date.plusDays(offset)));
+        }
+        long amount = cents(expense.getAmount());
+        long description = descriptionHash(expense.getDescription());
+        if (existing.take(fingerprint(date, amount, description))) {
+            return true;
+        }
+        for (int distance = 1; distance <= dayTolerance; distance++) {
+            if (existing.take(fingerprint(date.minusDays(distance), amount, description))
+                    || existing.take(fingerprint(date.plusDays(distance), amount, description))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void ensureLoaded(YearMonth month) throws SQLException {
+        if (!loadedMonths.add(month)) {
+            return;
+        }
+        expenseDAO.forEachExpenseBetween(userId, month.atDay(1), month.atEndOfMonth(), row ->
+            existing.add(fingerprint(row.getLocalDate("date"), cents(row.getBigDecimal("amount")),
+                descriptionHash(row.getString("description")))));
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    // Banks tack reference numbers, card digits and punctuation onto descriptions, so only letters count
+    private long descriptionHash(String description) {
+        if (descriptionMatch == ImportProfile.DescriptionMatch.IGNORE || description == null) {
+            return 0;
+        }
+        long hash = 0xcbf29ce484222325L;
+        int used = 0;
+        for (int i = 0; i < description.length(); i++) {
+            char c = description.charAt(i);
+            if (!Character.isLetter(c)) {
+                continue;
+            }
+            if (descriptionMatch == ImportProfile.DescriptionMatch.PREFIX && used == prefixLength) {
+                break;
+            }
+            hash = (hash ^ Character.toLowerCase(c)) * 0x100000001b3L;
+            used++;
+        }
+        return hash;
+    }
+
+    private static long fingerprint(LocalDate date, long cents, long descriptionHash) {
+        long h = mix(descriptionHash ^ date.toEpochDay() * 0x9E3779B97F4A7C15L);
+        return mix(h ^ cents * 0xC2B2AE3D27D4EB4FL);
+    }
+
+    // Final mixing step of MurmurHash3's 64-bit hash
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Open-addressing map from fingerprint to count, with linear probing.
+     * Takes 12 bytes per slot and never boxes a key.
+     */
+    private static final class FingerprintCounts {
+        // 0 marks an empty slot, so a fingerprint of 0 is stored as 1
+        private long[] keys = new long[1024];
+        private int[] counts = new int[1024];
+        private int size;
+
+        void add(long fingerprint) {
+            long key = fingerprint != 0 ? fingerprint : 1;
+            int slot = find(key);
+            if (keys[slot] == key) {
+                counts[slot]++;
+                return;
+            }
+            keys[slot] = key;
+            counts[slot] = 1;
+            if (++size * 3 > keys.length * 2) {
+                grow();
+            }
+        }
+
+        // Decrements the count if the fingerprint is present; slots are kept so probe chains stay intact
+        boolean take(long fingerprint) {
+            long key = fingerprint != 0 ? fingerprint : 1;
+            int slot = find(key);
+            if (keys[slot] != key || counts[slot] == 0) {
+                return false;
+            }
+            counts[slot]--;
+            return true;
+        }
+
+        // Slot holding the key, or the empty slot where it would go
+        private int find(long key) {
+            int mask = keys.length - 1;
+            int slot = (int) key & mask;
+            while (keys[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldCounts = counts;
+            keys = new long[oldKeys.length * 2];
+            counts = new int[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = find(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    counts[slot] = oldCounts[i];
+                }
+            }
+        }
+    }
+}
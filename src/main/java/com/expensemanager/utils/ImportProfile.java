@@ -0,0 +1,188 @@
+package com.expensemanager.utils;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Describes how one bank's CSV statements map onto expenses: which column
+ * holds what, how dates and amounts are written, and whether money coming in
+ * shows up as positive amounts that should be skipped. Column numbers start
+ * at 0; a column of -1 means the statement doesn't have it.
+ *
+ * Profiles are read from database/import_profiles.properties, one group of
+ * import.&lt;name&gt;.* keys per profile. The dedup* keys control how rows
+ * that are already recorded are recognised.
+ */
+public class ImportProfile {
+    public static final String PROFILES_FILE = "database/import_profiles.properties";
+    private static final String PREFIX = "import.";
+
+    private String name = "default";
+    private char delimiter = ',';
+    private int headerLines = 1;
+    private int dateColumn = 0;
+    private String datePattern = "yyyy-MM-dd";
+    private int descriptionColumn = 1;
+    private int amountColumn = 2;
+    private int categoryColumn = -1;
+    private String defaultCategory = "Others";
+    private char decimalSeparator = '.';
+    // Spending is written as negative amounts, so positive rows are income and skipped
+    private boolean debitsNegative = true;
+    private Charset charset = StandardCharsets.UTF_8;
+    private boolean dedup = true;
+    // Days an existing expense's date may differ by, for banks that post a day late
+    private int dedupDayTolerance = 0;
+    private DescriptionMatch dedupDescription = DescriptionMatch.EXACT;
+    private int dedupPrefixLength = 12;
+
+    private DateTimeFormatter dateFormatter;
+
+    /**
+     * How much of the description has to agree for a row to count as already
+     * recorded. Only letters are compared, ignoring case.
+     */
+    public enum DescriptionMatch {
+        EXACT, PREFIX, IGNORE
+    }
+
+    public ImportProfile() {}
+
+    /**
+     * Every profile in the profiles file, with the built-in default first
+     * unless the file overrides it.
+     */
+    public static List<ImportProfile> loadAll() {
+        Properties props = new Properties();
+        try (InputStream in = new FileInputStream(PROFILES_FILE)) {
+            props.load(in);
+        } catch (IOException e) {
+            System.err.println("Warning: Could not read " + PROFILES_FILE + ", using the default import profile");
+        }
+        return fromProperties(props);
+    }
+
+    public static List<ImportProfile> fromProperties(Properties props) {
+        Set<String> names = new LinkedHashSet<>();
+        names.add("default");
+        for (String key : props.stringPropertyNames()) {
+            int dot = key.indexOf('.', PREFIX.length());
+            if (key.startsWith(PREFIX) && dot > 0) {
+                names.add(key.substring(PREFIX.length(), dot));
+            }
+        }
+
+        List<ImportProfile> profiles = new ArrayList<>();
+        for (String profileName : names) {
+            try {
+                profiles.add(fromProperties(props, profileName));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Skipping import profile " + profileName + ": " + e.getMessage());
+            }
+        }
+        return profiles;
+    }
+
+    public static ImportProfile fromProperties(Properties props, String name) {
+        String p = PREFIX + name + ".";
+        ImportProfile profile = new ImportProfile();
+        profile.name = name;
+        profile.delimiter = parseChar(props.getProperty(p + "delimiter"), profile.delimiter);
+        profile.headerLines = parseInt(props.getProperty(p + "headerLines"), profile.headerLines);
+        profile.dateColumn = parseInt(props.getProperty(p + "dateColumn"), profile.dateColumn);
+        profile.datePattern = props.getProperty(p + "dateFormat", profile.datePattern).trim();
+        profile.descriptionColumn = parseInt(props.getProperty(p + "descriptionColumn"), profile.descriptionColumn);
+        profile.amountColumn = parseInt(props.getProperty(p + "amountColumn"), profile.amountColumn);
+        profile.categoryColumn = parseInt(props.getProperty(p + "categoryColumn"), profile.categoryColumn);
+        profile.defaultCategory = props.getProperty(p + "defaultCategory", profile.defaultCategory).trim();
+        profile.decimalSeparator = parseChar(props.getProperty(p + "decimalSeparator"), profile.decimalSeparator);
+        profile.debitsNegative = Boolean.parseBoolean(
+            props.getProperty(p + "debitsNegative", String.valueOf(profile.debitsNegative)).trim());
+        String charsetName = props.getProperty(p + "charset");
+        if (charsetName != null && !charsetName.trim().isEmpty()) {
+            profile.charset = Charset.forName(charsetName.trim());
+        }
+        profile.dedup = Boolean.parseBoolean(props.getProperty(p + "dedup", String.valueOf(profile.dedup)).trim());
+        profile.dedupDayTolerance = parseInt(props.getProperty(p + "dedupDayTolerance"), profile.dedupDayTolerance);
+        String descriptionMatch = props.getProperty(p + "dedupDescription");
+        if (descriptionMatch != null && !descriptionMatch.trim().isEmpty()) {
+            profile.dedupDescription = DescriptionMatch.valueOf(descriptionMatch.trim().toUpperCase());
+        }
+        profile.dedupPrefixLength = parseInt(props.getProperty(p + "dedupPrefixLength"), profile.dedupPrefixLength);
+
+        if (profile.dateColumn < 0 || profile.amountColumn < 0) {
+            throw new IllegalArgumentException("dateColumn and amountColumn are required");
+        }
+        if (profile.dedupDayTolerance < 0 || profile.dedupPrefixLength < 1) {
+            throw new IllegalArgumentException("dedupDayTolerance can't be negative and dedupPrefixLength must be positive");
+        }
+        profile.getDateFormatter();
+        return profile;
+    }
+
+    // Accepts a literal character or one of the names tab, semicolon and comma
+    private static char parseChar(String value, char fallback) {
+        if (value == null || value.isEmpty()) {
+            return fallback;
+        }
+        switch (value.trim().toLowerCase()) {
+            case "tab":
+                return '\t';
+            case "semicolon":
+                return ';';
+            case "comma":
+                return ',';
+            default:
+                return value.charAt(0);
+        }
+    }
+
+    private static int parseInt(String value, int fallback) {
+        if (value == null || value.trim().isEmpty()) {
+            return fallback;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number: " + value);
+        }
+    }
+
+    public String getName() { return name; }
+    public char getDelimiter() { return delimiter; }
+    public int getHeaderLines() { return headerLines; }
+    public int getDateColumn() { return dateColumn; }
+    public String getDatePattern() { return datePattern; }
+    public int getDescriptionColumn() { return descriptionColumn; }
+    public int getAmountColumn() { return amountColumn; }
+    public int getCategoryColumn() { return categoryColumn; }
+    public String getDefaultCategory() { return defaultCategory; }
+    public char getDecimalSeparator() { return decimalSeparator; }
+    public boolean isDebitsNegative() { return debitsNegative; }
+    public Charset getCharset() { return charset; }
+    public boolean isDedup() { return dedup; }
+    public int getDedupDayTolerance() { return dedupDayTolerance; }
+    public DescriptionMatch getDedupDescription() { return dedupDescription; }
+    public int getDedupPrefixLength() { return dedupPrefixLength; }
+
+    public DateTimeFormatter getDateFormatter() {
+        if (dateFormatter == null) {
+            dateFormatter = DateTimeFormatter.ofPattern(datePattern);
+        }
+        return dateFormatter;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,316 @@
+package com.expensemanager.utils;
+
+import com.expensemanager.dao.BudgetTracker;
+import com.expensemanager.dao.CategoryCache;
+import com.expensemanager.dao.ExpenseDAO;
+import com.expensemanager.models.Budget;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.TextStyle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Answers the common chat questions straight from the rollup and budget
+ * aggregates: which category costs the most, how much went on something,
+ * how this month compares with the last, and whether any budget is over.
+ * A question is matched by keywords; anything that asks for advice,
+ * explanation or prediction, or that matches no intent clearly, is left to
+ * the remote model.
+ */
+public class InsightEngine {
+    private static final LatencyHistogram localLatency = new LatencyHistogram("Answered locally");
+
+    // Questions containing any of these want reasoning the aggregates can't give
+    private static final Set<String> OPEN_ENDED = words(
+        "why", "should", "advice", "advise", "recommend", "suggest", "suggestions", "tips", "tip",
+        "improve", "reduce", "cut", "save", "saving", "plan", "predict", "forecast", "explain", "if");
+
+    private static final Set<String> SUPERLATIVE = words("most", "biggest", "largest", "top", "highest", "main");
+    private static final Set<String> SPENDING = words(
+        "spend", "spent", "spending", "expense", "expenses", "category", "categories", "cost", "money");
+    private static final Set<String> COMPARISON = words("compare", "compared", "comparison", "versus", "vs");
+    private static final Set<String> BUDGET = words("budget", "budgets", "overspent", "overspending", "limit");
+
+    private final ExpenseDAO expenseDAO;
+
+    enum Intent {
+        TOP_CATEGORY, TOTAL_SPENT, MONTH_COMPARISON, BUDGET_STATUS
+    }
+
+    private enum Period {
+        ALL("in total"), THIS_MONTH("this month"), LAST_MONTH("last month"), THIS_YEAR("this year");
+
+        private final String label;
+
+        Period(String label) {
+            this.label = label;
+        }
+    }
+
+    public InsightEngine() {
+        this(new ExpenseDAO());
+    }
+
+    public InsightEngine(ExpenseDAO expenseDAO) {
+        this.expenseDAO = expenseDAO;
+    }
+
+    public static LatencyHistogram getLocalLatency() {
+        return localLatency;
+    }
+
+    /**
+     * The answer to the question, or null if it should go to the remote
+     * model. Only answered questions are counted in the local latency.
+     */
+    public String answer(int userId, String question) throws SQLException {
+        long start = System.nanoTime();
+        Question parsed = new Question(question);
+        Intent intent = classify(parsed);
+        if (intent == null) {
+            return null;
+        }
+        String answer;
+        switch (intent) {
+            case TOP_CATEGORY:
+                answer = topCategory(userId, parsed.period());
+                break;
+            case TOTAL_SPENT:
+                answer = totalSpent(userId, parsed.period(), parsed.category());
+                break;
+            case MONTH_COMPARISON:
+                answer = monthComparison(userId);
+                break;
+            default:
+                answer = budgetStatus(userId);
+                break;
+        }
+        localLatency.record(System.nanoTime() - start);
+        return answer;
+    }
+
+    static Intent classify(Question question) throws SQLException {
+        if (question.hasAny(OPEN_ENDED) || question.has("how can") || question.has("how do i")
+                || question.has("what can")) {
+            return null;
+        }
+        if (question.hasAny(BUDGET) || question.has("over budget")) {
+            return Intent.BUDGET_STATUS;
+        }
+        if (question.hasAny(COMPARISON) || question.has("month over month")
+                || question.has("than last month") || question.has("than the previous month")
+                || question.has("this month") && question.has("last month")) {
+            return Intent.MONTH_COMPARISON;
+        }
+        if (question.hasAny(SUPERLATIVE) && question.hasAny(SPENDING)) {
+            return Intent.TOP_CATEGORY;
+        }
+        if ((question.has("how much") || question.has("total"))
+                && (question.hasAny(SPENDING) || question.category() != null)) {
+            return Intent.TOTAL_SPENT;
+        }
+        return null;
+    }
+
+    private String topCategory(int userId, Period period) throws SQLException {
+        Map<String, BigDecimal> totals = categoryTotals(userId, period);
+        BigDecimal total = sum(totals.values());
+        if (totals.isEmpty() || total.signum() <= 0) {
+            return "You have no expenses recorded " + period.label + " yet.";
+        }
+        List<Map.Entry<String, BigDecimal>> ranked = new ArrayList<>(totals.entrySet());
+        // The rollups return categories largest first
+        Map.Entry<String, BigDecimal> top = ranked.get(0);
+        StringBuilder text = new StringBuilder(String.format("You spent the most on %s %s: %s (%s of %s).",
+            top.getKey(), period.label, money(top.getValue()), percent(top.getValue(), total), money(total)));
+        if (ranked.size() > 1) {
+            text.append("\nNext were ");
+            for (int i = 1; i < Math.min(3, ranked.size()); i++) {
+                if (i > 1) {
+                    text.append(" and ");
+                }
+                text.append(ranked.get(i).getKey()).append(" (").append(money(ranked.get(i).getValue())).append(')');
+            }
+            text.append('.');
+        }
+        return text.toString();
+    }
+
+    private String totalSpent(int userId, Period period, String category) throws SQLException {
+        Map<String, BigDecimal> totals = categoryTotals(userId, period);
+        if (category == null) {
+            return String.format("You spent %s %s.", money(sum(totals.values())), period.label);
+        }
+        BigDecimal amount = totals.getOrDefault(category, BigDecimal.ZERO);
+        return String.format("You spent %s on %s %s.", money(amount), category, period.label);
+    }
+
+    private String monthComparison(int userId) throws SQLException {
+        LocalDate thisMonth = LocalDate.now().withDayOfMonth(1);
+        LocalDate lastMonth = thisMonth.minusMonths(1);
+        Map<String, BigDecimal> current = expenseDAO.getExpensesByCategory(userId, thisMonth, thisMonth);
+        Map<String, BigDecimal> previous = expenseDAO.getExpensesByCategory(userId, lastMonth, lastMonth);
+        BigDecimal currentTotal = sum(current.values());
+        BigDecimal previousTotal = sum(previous.values());
+
+        StringBuilder text = new StringBuilder(String.format("So far in %s you have spent %s, against %s in %s",
+            monthName(thisMonth), money(currentTotal), money(previousTotal), monthName(lastMonth)));
+        if (previousTotal.signum() > 0) {
+            BigDecimal change = currentTotal.subtract(previousTotal);
+            text.append(String.format(" (%s%s)", change.signum() >= 0 ? "+" : "-", percent(change.abs(), previousTotal)));
+        }
+        text.append('.');
+
+        // The category whose spending moved the most either way
+        String mover = null;
+        BigDecimal moverChange = BigDecimal.ZERO;
+        Set<String> categories = new LinkedHashSet<>(current.keySet());
+        categories.addAll(previous.keySet());
+        for (String category : categories) {
+            BigDecimal change = current.getOrDefault(category, BigDecimal.ZERO)
+                .subtract(previous.getOrDefault(category, BigDecimal.ZERO));
+            if (change.abs().compareTo(moverChange.abs()) > 0) {
+                mover = category;
+                moverChange = change;
+            }
+        }
+        if (mover != null) {
+            text.append(String.format("\nThe biggest change is %s, %s by %s.", mover,
+                moverChange.signum() > 0 ? "up" : "down", money(moverChange.abs())));
+        }
+        return text.toString();
+    }
+
+    private String budgetStatus(int userId) throws SQLException {
+        LocalDate today = LocalDate.now();
+        List<Budget> active = new ArrayList<>();
+        for (Budget budget : BudgetTracker.getBudgets(userId)) {
+            if (budget.covers(today)) {
+                active.add(budget);
+            }
+        }
+        if (active.isEmpty()) {
+            return "You have no budgets running today.";
+        }
+        active.sort((a, b) -> Double.compare(b.getPercentUsed(), a.getPercentUsed()));
+        int over = 0;
+        StringBuilder lines = new StringBuilder();
+        for (Budget budget : active) {
+            boolean isOver = budget.getRemaining().signum() < 0;
+            if (isOver) {
+                over++;
+            }
+            lines.append(String.format("\n- %s: %s of %s (%.0f%%)%s", budget.getCategory(), money(budget.getSpent()),
+                money(budget.getAmount()), budget.getPercentUsed(),
+                isOver ? ", over by " + money(budget.getRemaining().negate()) : ""));
+        }
+        String summary = over == 0 ? "You are within all of your budgets."
+            : over == 1 ? "You are over 1 budget." : "You are over " + over + " budgets.";
+        return summary + lines;
+    }
+
+    private Map<String, BigDecimal> categoryTotals(int userId, Period period) throws SQLException {
+        LocalDate thisMonth = LocalDate.now().withDayOfMonth(1);
+        switch (period) {
+            case THIS_MONTH:
+                return expenseDAO.getExpensesByCategory(userId, thisMonth, thisMonth);
+            case LAST_MONTH:
+                return expenseDAO.getExpensesByCategory(userId, thisMonth.minusMonths(1), thisMonth.minusMonths(1));
+            case THIS_YEAR:
+                return expenseDAO.getExpensesByCategory(userId, thisMonth.withMonth(1), thisMonth);
+            default:
+                return expenseDAO.getExpensesByCategory(userId);
+        }
+    }
+
+    private static BigDecimal sum(Iterable<BigDecimal> values) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (BigDecimal value : values) {
+            total = total.add(value);
+        }
+        return total;
+    }
+
+    private static String money(BigDecimal amount) {
+        return String.format("$%,.2f", amount);
+    }
+
+    private static String percent(BigDecimal part, BigDecimal whole) {
+        return part.multiply(BigDecimal.valueOf(100)).divide(whole, 0, RoundingMode.HALF_UP) + "%";
+    }
+
+    private static String monthName(LocalDate month) {
+        return month.getMonth().getDisplayName(TextStyle.FULL, Locale.ENGLISH);
+    }
+
+    private static Set<String> words(String... words) {
+        return new HashSet<>(Arrays.asList(words));
+    }
+
+    /**
+     * A question lowercased and split into words, with phrase lookups done on
+     * the words rejoined by single spaces.
+     */
+    static final class Question {
+        private final String text;
+        private final Set<String> words;
+
+        Question(String question) {
+            String[] split = question.toLowerCase(Locale.ROOT).split("[^a-z0-9']+");
+            StringBuilder joined = new StringBuilder(" ");
+            words = new HashSet<>();
+            for (String word : split) {
+                if (!word.isEmpty()) {
+                    words.add(word);
+                    joined.append(word).append(' ');
+                }
+            }
+            text = joined.toString();
+        }
+
+        boolean has(String phrase) {
+            return text.contains(" " + phrase + " ");
+        }
+
+        boolean hasAny(Set<String> candidates) {
+            for (String word : words) {
+                if (candidates.contains(word)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        Period period() {
+            if (has("this month") || has("current month") || has("so far this month")) {
+                return Period.THIS_MONTH;
+            }
+            if (has("last month") || has("previous month")) {
+                return Period.LAST_MONTH;
+            }
+            if (has("this year")) {
+                return Period.THIS_YEAR;
+            }
+            return Period.ALL;
+        }
+
+        // The first category named in the question, matched case-insensitively
+        String category() throws SQLException {
+            for (String name : CategoryCache.getNames()) {
+                if (has(name.toLowerCase(Locale.ROOT))) {
+                    return name;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.expensemanager.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts latencies in power-of-two buckets of microseconds, from under 1 µs
+ * up to about 35 minutes. Recording is one atomic increment, so it is safe
+ * to call from any thread and cheap enough to leave on. Percentiles are
+ * reported as the upper bound of the bucket they fall in.
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS = 32;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        // Bucket i holds latencies below 2^i microseconds
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        counts.incrementAndGet(bucket);
+    }
+
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Upper bound in milliseconds of the bucket holding the given percentile,
+     * or 0 if nothing has been recorded.
+     */
+    public double getPercentileMillis(double percentile) {
+        long[] snapshot = snapshot();
+        long total = 0;
+        for (long count : snapshot) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank && snapshot[i] > 0) {
+                return upperBoundMicros(i) / 1000.0;
+            }
+        }
+        return upperBoundMicros(BUCKETS - 1) / 1000.0;
+    }
+
+    /**
+     * One line per non-empty bucket with a bar scaled to the fullest one,
+     * followed by the median and 95th percentile.
+     */
+    public String format() {
+        long[] snapshot = snapshot();
+        long max = 0;
+        long total = 0;
+        for (long count : snapshot) {
+            max = Math.max(max, count);
+            total += count;
+        }
+        StringBuilder text = new StringBuilder(name).append(" (").append(total).append(" answers)\n");
+        if (total == 0) {
+            return text.append("  no answers yet\n").toString();
+        }
+        for (int i = 0; i < BUCKETS; i++) {
+            if (snapshot[i] == 0) {
+                continue;
+            }
+            int bar = (int) Math.max(1, snapshot[i] * 30 / max);
+            text.append(String.format("  < %-8s %-30s %d%n", formatMicros(upperBoundMicros(i)),
+                "#".repeat(bar), snapshot[i]));
+        }
+        return text.append(String.format("  median %s, p95 %s%n",
+            formatMicros((long) (getPercentileMillis(50) * 1000)),
+            formatMicros((long) (getPercentileMillis(95) * 1000)))).toString();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    private long[] snapshot() {
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+        }
+        return snapshot;
+    }
+
+    private static long upperBoundMicros(int bucket) {
+        return 1L << bucket;
+    }
+
+    private static String formatMicros(long micros) {
+        if (micros < 1000) {
+            return micros + " µs";
+        }
+        if (micros < 1_000_000) {
+            return (micros / 1000) + " ms";
+        }
+        return String.format("%.1f s", micros / 1_000_000.0);
+    }
+}
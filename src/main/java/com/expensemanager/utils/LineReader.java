@@ -0,0 +1,145 @@
+package com.expensemanager.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a file line by line through one reusable buffer. A line is handed out
+ * as a byte range inside that buffer rather than as a String, so callers only
+ * pay for the fields they actually decode. Memory use is bounded by the
+ * longest line, not by the size of the file.
+ */
+final class LineReader implements Closeable {
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private ByteBuffer buffer;
+    private long consumed;
+    private int lineStart;
+    private int lineEnd;
+    private boolean eof;
+
+    LineReader(Path file) throws IOException {
+        this(file, DEFAULT_BUFFER_SIZE);
+    }
+
+    LineReader(Path file, int bufferSize) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        size = channel.size();
+        buffer = ByteBuffer.allocate(bufferSize);
+        buffer.flip();
+        skipByteOrderMark();
+    }
+
+    /**
+     * Moves to the next line. The range of the previous line is only valid
+     * until this is called again.
+     */
+    boolean next() throws IOException {
+        while (true) {
+            int newline = indexOfNewline();
+            if (newline >= 0) {
+                setLine(buffer.position(), newline);
+                buffer.position(newline + 1);
+                consumed += newline + 1 - lineStart;
+                return true;
+            }
+            if (eof) {
+                if (!buffer.hasRemaining()) {
+                    return false;
+                }
+                // Last line without a trailing newline
+                setLine(buffer.position(), buffer.limit());
+                consumed += buffer.remaining();
+                buffer.position(buffer.limit());
+                return true;
+            }
+            fill();
+        }
+    }
+
+    byte[] array() {
+        return buffer.array();
+    }
+
+    // Offset of the first byte of the current line
+    int start() {
+        return lineStart;
+    }
+
+    // Offset just past the current line, without the line terminator
+    int end() {
+        return lineEnd;
+    }
+
+    boolean isBlank() {
+        byte[] bytes = buffer.array();
+        for (int i = lineStart; i < lineEnd; i++) {
+            if (bytes[i] != ' ' && bytes[i] != '\t') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Bytes of the file handed out so far, for progress reporting
+    long position() {
+        return consumed;
+    }
+
+    long size() {
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int indexOfNewline() {
+        byte[] bytes = buffer.array();
+        for (int i = buffer.position(); i < buffer.limit(); i++) {
+            if (bytes[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void setLine(int start, int end) {
+        lineStart = start;
+        lineEnd = end > start && buffer.array()[end - 1] == '\r' ? end - 1 : end;
+    }
+
+    // Keeps the unread tail, making room for more input; grows only for a line longer than the buffer
+    private void fill() throws IOException {
+        if (buffer.position() == 0 && buffer.limit() == buffer.capacity()) {
+            ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+            larger.put(buffer);
+            buffer = larger;
+        } else {
+            buffer.compact();
+        }
+        if (channel.read(buffer) < 0) {
+            eof = true;
+        }
+        buffer.flip();
+    }
+
+    private void skipByteOrderMark() throws IOException {
+        while (buffer.remaining() < 3 && !eof) {
+            fill();
+        }
+        byte[] bytes = buffer.array();
+        int p = buffer.position();
+        if (buffer.remaining() >= 3 && bytes[p] == (byte) 0xEF && bytes[p + 1] == (byte) 0xBB && bytes[p + 2] == (byte) 0xBF) {
+            buffer.position(p + 3);
+            consumed = 3;
+        }
+    }
+}
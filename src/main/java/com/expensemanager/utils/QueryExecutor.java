@@ -8,35 +8,79 @@ import java.util.Map;
 
 public class QueryExecutor {
     
-    public static List<Map<String, Object>> executeQuery(String sql, Object... params) throws SQLException {
-        List<Map<String, Object>> results = new ArrayList<>();
-        
+    public static <T> List<T> query(String sql, RowMapper<T> mapper, Object... params) throws SQLException {
+        List<T> results = new ArrayList<>();
+        forEachRow(sql, row -> results.add(mapper.mapRow(row)), params);
+        return results;
+    }
+    
+    public static <T> T queryForObject(String sql, RowMapper<T> mapper, Object... params) throws SQLException {
+        List<T> results = new ArrayList<>(1);
+        forEachRow(sql, 1, row -> results.add(mapper.mapRow(row)), params);
+        return results.isEmpty() ? null : results.get(0);
+    }
+    
+    public static void forEachRow(String sql, RowCallback callback, Object... params) throws SQLException {
+        forEachRow(sql, 0, callback, params);
+    }
+    
+    private static void forEachRow(String sql, int maxRows, RowCallback callback, Object... params) throws SQLException {
         try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
+            stmt.setMaxRows(maxRows);
+            
             // Set parameters
             for (int i = 0; i < params.length; i++) {
                 stmt.setObject(i + 1, params[i]);
             }
             
-            // Execute and get results
+            // One row holder per result set, reused for every row
             try (ResultSet rs = stmt.executeQuery()) {
-                ResultSetMetaData metaData = rs.getMetaData();
-                int columnCount = metaData.getColumnCount();
-                
-                while (rs.next()) {
-                    Map<String, Object> row = new HashMap<>();
-                    for (int i = 1; i <= columnCount; i++) {
-                        String columnName = metaData.getColumnName(i);
-                        Object value = rs.getObject(i);
-                        row.put(columnName, value);
-                    }
-                    results.add(row);
+                ResultRow row = new ResultRow(rs);
+                while (row.next()) {
+                    callback.processRow(row);
                 }
             }
         }
-        
-        return results;
+    }
+    
+    /**
+     * Like forEachRow, but asks the driver to stream the result instead of
+     * buffering it, for queries whose result may not fit in memory. The
+     * connection can't run other statements until the callback has seen
+     * every row.
+     */
+    public static void streamRows(String sql, RowCallback callback, Object... params) throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            
+            stmt.setFetchSize(DatabaseUtil.getDialect().streamingFetchSize());
+            
+            for (int i = 0; i < params.length; i++) {
+                stmt.setObject(i + 1, params[i]);
+            }
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                ResultRow row = new ResultRow(rs);
+                while (row.next()) {
+                    callback.processRow(row);
+                }
+            }
+        }
+    }
+    
+    public static List<Map<String, Object>> executeQuery(String sql, Object... params) throws SQLException {
+        return query(sql, QueryExecutor::toMap, params);
+    }
+    
+    private static Map<String, Object> toMap(ResultRow row) throws SQLException {
+        int columnCount = row.getColumnCount();
+        Map<String, Object> map = new HashMap<>(columnCount * 2);
+        for (int i = 1; i <= columnCount; i++) {
+            map.put(row.getColumnLabel(i), row.getObject(i));
+        }
+        return map;
     }
     
     public static int executeUpdate(String sql, Object... params) throws SQLException {
@@ -56,17 +100,12 @@ public class QueryExecutor {
     // Example usage methods
     
     public static Map<String, Double> getCategoryTotals(int userId) throws SQLException {
-        String sql = "SELECT category, SUM(amount) as total FROM expenses " +
-                    "WHERE user_id = ? GROUP BY category";
+        String sql = "SELECT c.name, SUM(e.amount) as total FROM expenses e " +
+                    "JOIN categories c ON c.id = e.category_id " +
+                    "WHERE e.user_id = ? GROUP BY c.name";
         
-        List<Map<String, Object>> results = executeQuery(sql, userId);
         Map<String, Double> totals = new HashMap<>();
-        
-        for (Map<String, Object> row : results) {
-            String category = (String) row.get("category");
-            Double total = ((Number) row.get("total")).doubleValue();
-            totals.put(category, total);
-        }
+        forEachRow(sql, row -> totals.put(row.getString(1), row.getDouble(2)), userId);
         
         return totals;
     }
@@ -78,16 +117,16 @@ public class QueryExecutor {
                     "MIN(amount) as min_amount, " +
                     "MAX(amount) as max_amount " +
                     "FROM expenses " +
-                    "WHERE user_id = ? AND strftime('%Y-%m', date) = ?";
+                    "WHERE user_id = ? AND " + DatabaseUtil.getDialect().yearMonth("date") + " = ?";
         
-        List<Map<String, Object>> results = executeQuery(sql, userId, yearMonth);
-        return results.isEmpty() ? new HashMap<>() : results.get(0);
+        Map<String, Object> summary = queryForObject(sql, QueryExecutor::toMap, userId, yearMonth);
+        return summary != null ? summary : new HashMap<>();
     }
     
     public static List<Map<String, Object>> getTopSpendingCategories(int userId, int limit) throws SQLException {
-        String sql = "SELECT category, SUM(amount) as total_amount, COUNT(*) as transaction_count " +
-                    "FROM expenses WHERE user_id = ? " +
-                    "GROUP BY category ORDER BY total_amount DESC LIMIT ?";
+        String sql = "SELECT c.name as category, SUM(e.amount) as total_amount, COUNT(*) as transaction_count " +
+                    "FROM expenses e JOIN categories c ON c.id = e.category_id WHERE e.user_id = ? " +
+                    "GROUP BY c.name ORDER BY total_amount DESC LIMIT ?";
         
         return executeQuery(sql, userId, limit);
     }
@@ -0,0 +1,241 @@
+package com.expensemanager.utils;
+
+import com.expensemanager.dao.ExpenseDAO;
+import com.expensemanager.dao.RecurringExpenseDAO;
+import com.expensemanager.models.Expense;
+import com.expensemanager.models.RecurringExpense;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Turns recurring expenses into real expenses in the background.
+ * Each schedule's next_due_date says which occurrence comes next; a run
+ * generates every occurrence from there up to today (or the end date) and
+ * moves next_due_date past them in the same transaction, so missed days are
+ * caught up and nothing is generated twice.
+ *
+ * Upcoming due dates are mirrored in a priority queue, and the scheduler
+ * sleeps until the soonest one instead of polling. Runs only read the
+ * schedules that are actually due.
+ */
+public class RecurringExpenseScheduler {
+    // Longest sleep even with nothing queued, so schedules added outside the app are still picked up
+    private static final long MAX_SLEEP_MS = TimeUnit.HOURS.toMillis(24);
+    private static final long RETRY_DELAY_MS = TimeUnit.MINUTES.toMillis(5);
+
+    private final RecurringExpenseDAO recurringExpenseDAO;
+    private final ExpenseDAO expenseDAO;
+    private final int batchSize;
+    private final BiConsumer<Integer, LocalDate> dueListener = this::nextDueChanged;
+
+    // Soonest due date first. Dates of edited or deleted schedules go stale
+    // and only cause a run that finds nothing to do.
+    private final PriorityQueue<LocalDate> dueDates = new PriorityQueue<>();
+    private ScheduledExecutorService executor;
+    private ScheduledFuture<?> wakeUp;
+    private long wakeUpAt;
+    private boolean queueLoaded;
+
+    public RecurringExpenseScheduler() {
+        this(new RecurringExpenseDAO(), new ExpenseDAO(), ExpenseDAO.DEFAULT_BATCH_SIZE);
+    }
+
+    public RecurringExpenseScheduler(RecurringExpenseDAO recurringExpenseDAO, ExpenseDAO expenseDAO, int batchSize) {
+        this.recurringExpenseDAO = recurringExpenseDAO;
+        this.expenseDAO = expenseDAO;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Runs once right away, then whenever the next schedule falls due.
+     */
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "recurring-expense-scheduler");
+            t.setDaemon(true);
+            return t;
+        });
+        RecurringExpenseDAO.addNextDueListener(dueListener);
+        executor.execute(this::runSafely);
+    }
+
+    public synchronized void stop() {
+        if (executor != null) {
+            RecurringExpenseDAO.removeNextDueListener(dueListener);
+            executor.shutdownNow();
+            executor = null;
+            wakeUp = null;
+        }
+    }
+
+    private void runSafely() {
+        long maxDelay = MAX_SLEEP_MS;
+        try {
+            if (!isQueueLoaded()) {
+                loadQueue();
+            }
+            int generated = materialize(LocalDate.now());
+            if (generated > 0) {
+                System.out.println("Generated " + generated + " recurring expenses");
+            }
+        } catch (Exception e) {
+            // Whatever committed stays committed; try the rest again shortly
+            System.err.println("Error generating recurring expenses: " + e.getMessage());
+            maxDelay = RETRY_DELAY_MS;
+        } finally {
+            arm(maxDelay);
+        }
+    }
+
+    /**
+     * Inserts every occurrence due on or before the given day that has not
+     * been generated yet. Returns the number of expenses inserted.
+     */
+    public int materialize(LocalDate today) throws SQLException {
+        indexSchedulesWithoutDueDate();
+        synchronized (this) {
+            while (!dueDates.isEmpty() && !dueDates.peek().isAfter(today)) {
+                dueDates.poll();
+            }
+        }
+
+        List<Expense> pending = new ArrayList<>(batchSize);
+        Map<Integer, LocalDate> nextDueDates = new HashMap<>();
+        int inserted = 0;
+
+        for (RecurringExpense schedule : recurringExpenseDAO.findDueSchedules(today)) {
+            if (schedule.getFrequencyUnit() == null) {
+                System.err.println("Skipping recurring expense " + schedule.getId() +
+                    ": unknown frequency " + schedule.getFrequency());
+                continue;
+            }
+            LocalDate until = schedule.getEndDate().isBefore(today) ? schedule.getEndDate() : today;
+            long n = schedule.getOccurrenceIndexAfter(schedule.getNextDueDate().minusDays(1));
+            LocalDate date = schedule.getOccurrence(n);
+            for (; !date.isAfter(until); date = schedule.getOccurrence(++n)) {
+                pending.add(toExpense(schedule, date));
+            }
+            nextDueDates.put(schedule.getId(), date);
+
+            // A schedule's occurrences never straddle two transactions
+            if (pending.size() >= batchSize) {
+                inserted += flush(pending, nextDueDates, today);
+            }
+        }
+        inserted += flush(pending, nextDueDates, today);
+        return inserted;
+    }
+
+    private int flush(List<Expense> pending, Map<Integer, LocalDate> nextDueDates, LocalDate today) throws SQLException {
+        if (nextDueDates.isEmpty()) {
+            return 0;
+        }
+        int inserted = expenseDAO.createRecurringOccurrences(pending, nextDueDates);
+        // A date not after today belongs to a schedule that just ended
+        List<LocalDate> upcoming = new ArrayList<>(nextDueDates.size());
+        for (LocalDate date : nextDueDates.values()) {
+            if (date.isAfter(today)) {
+                upcoming.add(date);
+            }
+        }
+        enqueue(upcoming);
+        pending.clear();
+        nextDueDates.clear();
+        return inserted;
+    }
+
+    // Fills in next_due_date for schedules that don't have one yet
+    private void indexSchedulesWithoutDueDate() throws SQLException {
+        Map<Integer, LocalDate> nextDueDates = new HashMap<>();
+        for (RecurringExpense schedule : recurringExpenseDAO.findSchedulesWithoutDueDate()) {
+            if (schedule.getFrequencyUnit() == null) {
+                continue;
+            }
+            LocalDate last = schedule.getLastGeneratedDate();
+            long n = last != null ? schedule.getOccurrenceIndexAfter(last) : 0;
+            nextDueDates.put(schedule.getId(), schedule.getOccurrence(n));
+        }
+        if (!nextDueDates.isEmpty()) {
+            recurringExpenseDAO.updateNextDueDates(nextDueDates);
+            enqueue(nextDueDates.values());
+        }
+    }
+
+    private void loadQueue() throws SQLException {
+        Map<Integer, LocalDate> nextDueDates = recurringExpenseDAO.findNextDueDates();
+        synchronized (this) {
+            dueDates.clear();
+            dueDates.addAll(nextDueDates.values());
+            queueLoaded = true;
+        }
+    }
+
+    private synchronized boolean isQueueLoaded() {
+        return queueLoaded;
+    }
+
+    private synchronized void enqueue(Iterable<LocalDate> dates) {
+        for (LocalDate date : dates) {
+            dueDates.add(date);
+        }
+    }
+
+    // Called by RecurringExpenseDAO when a schedule is created or edited
+    private synchronized void nextDueChanged(int scheduleId, LocalDate nextDueDate) {
+        if (executor == null) {
+            return;
+        }
+        // No date means it has to be recomputed, which the next run does
+        LocalDate due = nextDueDate != null ? nextDueDate : LocalDate.now();
+        dueDates.add(due);
+        if (startOfDay(due) < wakeUpAt) {
+            arm(MAX_SLEEP_MS);
+        }
+    }
+
+    private synchronized void arm(long maxDelay) {
+        if (executor == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long target = now + maxDelay;
+        LocalDate soonest = dueDates.peek();
+        if (soonest != null) {
+            target = Math.min(target, Math.max(now, startOfDay(soonest)));
+        }
+        if (wakeUp != null) {
+            wakeUp.cancel(false);
+        }
+        wakeUpAt = target;
+        wakeUp = executor.schedule(this::runSafely, target - now, TimeUnit.MILLISECONDS);
+    }
+
+    private static long startOfDay(LocalDate date) {
+        return date.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static Expense toExpense(RecurringExpense schedule, LocalDate date) {
+        Expense expense = new Expense();
+        expense.setUserId(schedule.getUserId());
+        expense.setCategoryName(schedule.getCategory());
+        expense.setAmount(schedule.getAmount());
+        expense.setDate(date);
+        expense.setDescription(schedule.getDescription());
+        expense.setRecurringExpenseId(schedule.getId());
+        return expense;
+    }
+}
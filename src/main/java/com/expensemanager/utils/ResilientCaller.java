@@ -0,0 +1,149 @@
+package com.expensemanager.utils;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs AI API calls through a rate limiter and a circuit breaker, and retries
+ * the ones that fail for transient reasons. Nothing here waits on a thread:
+ * attempts are asynchronous, and the pauses before them (for a rate-limit
+ * token, a backoff or a server's Retry-After) are delays on one shared
+ * scheduler thread.
+ *
+ * Backoff doubles from one second up to thirty, and each delay is drawn at
+ * random from its upper half so that windows retrying together spread out.
+ */
+final class ResilientCaller {
+    private static final int MAX_ATTEMPTS = 4;
+    private static final long BASE_DELAY_MILLIS = 1000;
+    private static final long MAX_DELAY_MILLIS = 30_000;
+    // A longer Retry-After is reported to the user instead of waited out
+    private static final long MAX_RETRY_AFTER_MILLIS = 60_000;
+
+    private final TokenBucket rateLimiter;
+    private final CircuitBreaker breaker;
+    private final ScheduledExecutorService scheduler;
+
+    interface Attempt {
+        // Starts one try; must not block
+        CompletableFuture<String> start();
+    }
+
+    ResilientCaller(TokenBucket rateLimiter, CircuitBreaker breaker) {
+        this.rateLimiter = rateLimiter;
+        this.breaker = breaker;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ai-request-scheduler");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * The eventual result of the first successful attempt, or the error that
+     * ended the retries. Cancelling the returned future cancels the attempt
+     * in flight and any retry still to come.
+     */
+    CompletableFuture<String> call(Attempt attempt) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        schedule(attempt, 1, result);
+        return result;
+    }
+
+    private void schedule(Attempt attempt, int number, CompletableFuture<String> result) {
+        if (result.isDone()) {
+            return;
+        }
+        if (!breaker.tryAcquire()) {
+            long seconds = Math.max(1, TimeUnit.MILLISECONDS.toSeconds(breaker.getRemainingOpenMillis()));
+            result.completeExceptionally(new AIServiceException(
+                "The AI service is not responding; try again in " + seconds + " s", 503, -1, false));
+            return;
+        }
+        long waitNanos = rateLimiter.reserve();
+        if (waitNanos == 0) {
+            start(attempt, number, result);
+        } else {
+            scheduler.schedule(() -> start(attempt, number, result), waitNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void start(Attempt attempt, int number, CompletableFuture<String> result) {
+        if (result.isDone()) {
+            breaker.onIgnored();
+            return;
+        }
+        CompletableFuture<String> call;
+        try {
+            call = attempt.start();
+        } catch (RuntimeException e) {
+            breaker.onIgnored();
+            result.completeExceptionally(e);
+            return;
+        }
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                call.cancel(true);
+            }
+        });
+        call.whenComplete((value, error) -> {
+            if (error == null) {
+                breaker.onSuccess();
+                result.complete(value);
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (result.isDone() || cause instanceof CancellationException) {
+                breaker.onIgnored();
+                return;
+            }
+            if (isServiceFailure(cause)) {
+                breaker.onFailure();
+            } else {
+                breaker.onIgnored();
+            }
+            long delay = number < MAX_ATTEMPTS && isRetryable(cause) ? retryDelayMillis(cause, number) : -1;
+            if (delay < 0) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            scheduler.schedule(() -> schedule(attempt, number + 1, result), delay, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    // Network errors are retried as well as the statuses AIServiceException marks retryable
+    private static boolean isRetryable(Throwable cause) {
+        if (cause instanceof AIServiceException) {
+            return ((AIServiceException) cause).isRetryable();
+        }
+        return cause instanceof IOException;
+    }
+
+    // Client errors such as a bad key say nothing about the service's health
+    private static boolean isServiceFailure(Throwable cause) {
+        if (cause instanceof AIServiceException) {
+            AIServiceException e = (AIServiceException) cause;
+            int status = e.getStatusCode();
+            return e.isRetryable() || status < 400 || status >= 500;
+        }
+        return cause instanceof IOException;
+    }
+
+    // -1 if the server asked for a longer wait than is worth making the user sit through
+    private static long retryDelayMillis(Throwable cause, int attempt) {
+        if (cause instanceof AIServiceException) {
+            long retryAfter = ((AIServiceException) cause).getRetryAfterMillis();
+            if (retryAfter >= 0) {
+                return retryAfter <= MAX_RETRY_AFTER_MILLIS ? retryAfter : -1;
+            }
+        }
+        long ceiling = Math.min(MAX_DELAY_MILLIS, BASE_DELAY_MILLIS << (attempt - 1));
+        return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+    }
+}
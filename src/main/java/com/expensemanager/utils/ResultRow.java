@@ -0,0 +1,87 @@
+package com.expensemanager.utils;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reusable cursor over a result set. Column labels and their indexes are read
+ * from the metadata once per result set, so name lookups don't go back to the
+ * driver on every row, and the typed getters avoid boxing through getObject.
+ */
+public final class ResultRow {
+    private final ResultSet rs;
+    private final String[] labels;
+    private final Map<String, Integer> indexes;
+    private int rowNum;
+
+    ResultRow(ResultSet rs) throws SQLException {
+        this.rs = rs;
+        ResultSetMetaData metaData = rs.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        this.labels = new String[columnCount + 1];
+        this.indexes = new HashMap<>(columnCount * 2);
+        for (int i = 1; i <= columnCount; i++) {
+            labels[i] = metaData.getColumnLabel(i);
+            indexes.putIfAbsent(labels[i].toLowerCase(), i);
+        }
+    }
+
+    boolean next() throws SQLException {
+        if (rs.next()) {
+            rowNum++;
+            return true;
+        }
+        return false;
+    }
+
+    // 1-based number of the current row
+    public int getRowNum() { return rowNum; }
+
+    public int getColumnCount() { return labels.length - 1; }
+
+    public String getColumnLabel(int column) { return labels[column]; }
+
+    public int findColumn(String label) throws SQLException {
+        Integer index = indexes.get(label.toLowerCase());
+        if (index == null) {
+            throw new SQLException("Unknown column: " + label);
+        }
+        return index;
+    }
+
+    public int getInt(int column) throws SQLException { return rs.getInt(column); }
+    public int getInt(String label) throws SQLException { return rs.getInt(findColumn(label)); }
+
+    public long getLong(int column) throws SQLException { return rs.getLong(column); }
+    public long getLong(String label) throws SQLException { return rs.getLong(findColumn(label)); }
+
+    public double getDouble(int column) throws SQLException { return rs.getDouble(column); }
+    public double getDouble(String label) throws SQLException { return rs.getDouble(findColumn(label)); }
+
+    public boolean getBoolean(int column) throws SQLException { return rs.getBoolean(column); }
+    public boolean getBoolean(String label) throws SQLException { return rs.getBoolean(findColumn(label)); }
+
+    public String getString(int column) throws SQLException { return rs.getString(column); }
+    public String getString(String label) throws SQLException { return rs.getString(findColumn(label)); }
+
+    public BigDecimal getBigDecimal(int column) throws SQLException { return rs.getBigDecimal(column); }
+    public BigDecimal getBigDecimal(String label) throws SQLException { return rs.getBigDecimal(findColumn(label)); }
+
+    public LocalDate getLocalDate(int column) throws SQLException {
+        Date date = rs.getDate(column);
+        return date != null ? date.toLocalDate() : null;
+    }
+    public LocalDate getLocalDate(String label) throws SQLException { return getLocalDate(findColumn(label)); }
+
+    public Object getObject(int column) throws SQLException { return rs.getObject(column); }
+    public Object getObject(String label) throws SQLException { return rs.getObject(findColumn(label)); }
+
+    // True if the last column read was SQL NULL
+    public boolean wasNull() throws SQLException { return rs.wasNull(); }
+}
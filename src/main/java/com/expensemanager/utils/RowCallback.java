@@ -0,0 +1,12 @@
+package com.expensemanager.utils;
+
+import java.sql.SQLException;
+
+/**
+ * Receives every row of a query without collecting results, e.g. for aggregation.
+ * The same {@link ResultRow} instance is passed for each row and must not be kept.
+ */
+@FunctionalInterface
+public interface RowCallback {
+    void processRow(ResultRow row) throws SQLException;
+}
@@ -0,0 +1,11 @@
+package com.expensemanager.utils;
+
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a query to an object of type T.
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+    T mapRow(ResultRow row) throws SQLException;
+}
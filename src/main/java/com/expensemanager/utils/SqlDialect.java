@@ -0,0 +1,116 @@
+package com.expensemanager.utils;
+
+import java.nio.file.Paths;
+
+/**
+ * Database backends the app can run on, selected with db.type in
+ * database/config.properties. Each one knows how to build its JDBC URL and
+ * how to spell the few SQL fragments that differ between engines.
+ */
+public enum SqlDialect {
+    /** MySQL server at db.host:db.port/db.name. */
+    MYSQL {
+        @Override
+        String buildUrl(String host, String port, String dbName, String file) {
+            // rewriteBatchedStatements turns JDBC batches into multi-row INSERTs
+            return String.format("jdbc:mysql://%s:%s/%s?rewriteBatchedStatements=true", host, port, dbName);
+        }
+
+        @Override
+        public String monthStart(String dateColumn) {
+            return "DATE_FORMAT(" + dateColumn + ", '%Y-%m-01')";
+        }
+
+        @Override
+        public String yearMonth(String dateColumn) {
+            return "DATE_FORMAT(" + dateColumn + ", '%Y-%m')";
+        }
+
+        @Override
+        public String tableOptions() {
+            return " ENGINE=InnoDB DEFAULT CHARSET=utf8mb4";
+        }
+
+        @Override
+        public int streamingFetchSize() {
+            // Connector/J's signal to stream rows one at a time instead of buffering the whole result
+            return Integer.MIN_VALUE;
+        }
+    },
+
+    /**
+     * Embedded H2 database stored in the db.file file, run in MySQL
+     * compatibility mode so the DAOs' upserts and LIMIT clauses work as is.
+     */
+    H2 {
+        @Override
+        String buildUrl(String host, String port, String dbName, String file) {
+            String path = file != null && !file.trim().isEmpty() ? file.trim() : "database/" + dbName;
+            // H2 only accepts relative paths that start with ./
+            if (!Paths.get(path).isAbsolute() && !path.startsWith("./") && !path.startsWith("~")) {
+                path = "./" + path;
+            }
+            return "jdbc:h2:file:" + path + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE";
+        }
+
+        @Override
+        public String monthStart(String dateColumn) {
+            return "CAST(DATE_TRUNC('MONTH', " + dateColumn + ") AS DATE)";
+        }
+
+        @Override
+        public String yearMonth(String dateColumn) {
+            return "FORMATDATETIME(" + dateColumn + ", 'yyyy-MM')";
+        }
+
+        @Override
+        public String tableOptions() {
+            return "";
+        }
+
+        @Override
+        public boolean isEmbedded() {
+            return true;
+        }
+
+        @Override
+        public int streamingFetchSize() {
+            // H2 already spills large results to disk; this only bounds each read
+            return 1000;
+        }
+    };
+
+    abstract String buildUrl(String host, String port, String dbName, String file);
+
+    /** Expression for the first day of the month of a DATE column, as a DATE. */
+    public abstract String monthStart(String dateColumn);
+
+    /** Expression for the 'YYYY-MM' string of a DATE column. */
+    public abstract String yearMonth(String dateColumn);
+
+    /** Suffix appended to CREATE TABLE statements. */
+    public abstract String tableOptions();
+
+    /**
+     * Fetch size that makes a forward-only, read-only query stream its rows
+     * rather than load the whole result into memory.
+     */
+    public abstract int streamingFetchSize();
+
+    /** True if the database lives in a local file rather than on a server. */
+    public boolean isEmbedded() {
+        return false;
+    }
+
+    public static SqlDialect fromName(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return H2;
+        }
+        try {
+            return valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Warning: Unknown db.type " + name + ", using H2");
+            return H2;
+        }
+    }
+}
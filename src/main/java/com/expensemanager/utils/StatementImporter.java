@@ -0,0 +1,426 @@
+package com.expensemanager.utils;
+
+import com.expensemanager.dao.BatchInsertResult;
+import com.expensemanager.dao.CategoryCache;
+import com.expensemanager.dao.ExpenseDAO;
+import com.expensemanager.models.Expense;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Imports bank statements (CSV, or OFX/QFX) as expenses. The file is streamed
+ * through a LineReader and rows are written with ExpenseDAO.createExpenses one
+ * batch at a time, so only a single batch of expenses is held in memory no
+ * matter how long the statement is.
+ *
+ * Only money going out becomes an expense; deposits and refunds are counted
+ * as skipped. Rows that match an expense already recorded are dropped by an
+ * ImportDeduplicator unless the profile turns deduplication off.
+ */
+public class StatementImporter {
+    // Rejected rows beyond this are counted but not described
+    private static final int MAX_ERRORS = 50;
+
+    private final ExpenseDAO expenseDAO;
+    private final int batchSize;
+
+    public interface ProgressListener {
+        /**
+         * Called after every batch is written and once at the end, on the
+         * importing thread.
+         */
+        void progress(long bytesRead, long totalBytes, int imported);
+    }
+
+    public StatementImporter() {
+        this(new ExpenseDAO(), ExpenseDAO.DEFAULT_BATCH_SIZE);
+    }
+
+    public StatementImporter(ExpenseDAO expenseDAO, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.expenseDAO = expenseDAO;
+        this.batchSize = batchSize;
+    }
+
+    public static boolean isOfx(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        return name.endsWith(".ofx") || name.endsWith(".qfx");
+    }
+
+    /**
+     * Imports the file for the user. OFX files are recognised by extension and
+     * only use the profile's default category and charset.
+     */
+    public ImportResult importFile(Path file, int userId, ImportProfile profile, ProgressListener listener)
+            throws IOException, SQLException {
+        ImportResult result = new ImportResult();
+        Batch batch = new Batch(userId, result, listener,
+            profile.isDedup() ? new ImportDeduplicator(expenseDAO, userId, profile) : null);
+        try (LineReader reader = new LineReader(file)) {
+            batch.reader = reader;
+            if (isOfx(file)) {
+                readOfx(reader, profile, batch);
+            } else {
+                readCsv(reader, profile, batch);
+            }
+            batch.flush();
+            if (listener != null) {
+                listener.progress(reader.size(), reader.size(), result.imported);
+            }
+        }
+        return result;
+    }
+
+    private void readCsv(LineReader reader, ImportProfile profile, Batch batch) throws SQLException, IOException {
+        CsvLine line = new CsvLine(profile.getDelimiter(), profile.getCharset());
+        int lineNumber = 0;
+        while (reader.next()) {
+            lineNumber++;
+            if (lineNumber <= profile.getHeaderLines() || reader.isBlank()) {
+                continue;
+            }
+            line.split(reader.array(), reader.start(), reader.end());
+            try {
+                Expense expense = toExpense(line, profile, batch.userId);
+                if (expense == null) {
+                    batch.result.skipped++;
+                } else {
+                    batch.add(expense);
+                }
+            } catch (IllegalArgumentException | DateTimeException e) {
+                batch.result.addError("Line " + lineNumber + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // Null means the row is income rather than spending
+    private Expense toExpense(CsvLine line, ImportProfile profile, int userId) throws SQLException {
+        String dateText = line.field(profile.getDateColumn()).trim();
+        String amountText = line.field(profile.getAmountColumn());
+        if (dateText.isEmpty()) {
+            throw new IllegalArgumentException("Missing date");
+        }
+        BigDecimal amount = parseAmount(amountText, profile.getDecimalSeparator());
+        if (profile.isDebitsNegative()) {
+            amount = amount.negate();
+        }
+        if (amount.signum() <= 0) {
+            return null;
+        }
+
+        Expense expense = new Expense();
+        expense.setUserId(userId);
+        expense.setDate(LocalDate.parse(dateText, profile.getDateFormatter()));
+        expense.setAmount(amount);
+        expense.setDescription(limit(line.optionalField(profile.getDescriptionColumn())));
+        expense.setCategoryName(resolveCategory(line.optionalField(profile.getCategoryColumn()), profile));
+        return expense;
+    }
+
+    private void readOfx(LineReader reader, ImportProfile profile, Batch batch) throws SQLException, IOException {
+        Charset charset = profile.getCharset();
+        String defaultCategory = resolveCategory(null, profile);
+        OfxTransaction txn = null;
+        int transactionNumber = 0;
+
+        while (reader.next()) {
+            byte[] bytes = reader.array();
+            int end = reader.end();
+            int i = indexOf(bytes, reader.start(), end, (byte) '<');
+            // SGML-style OFX leaves elements unclosed, so a value runs to the next tag or the end of the line
+            while (i >= 0) {
+                int close = indexOf(bytes, i + 1, end, (byte) '>');
+                if (close < 0) {
+                    break;
+                }
+                int next = indexOf(bytes, close + 1, end, (byte) '<');
+                int valueEnd = next >= 0 ? next : end;
+
+                if (tagIs(bytes, i + 1, close, "STMTTRN")) {
+                    txn = new OfxTransaction();
+                } else if (tagIs(bytes, i + 1, close, "/STMTTRN")) {
+                    if (txn != null) {
+                        transactionNumber++;
+                        try {
+                            Expense expense = txn.toExpense(batch.userId, defaultCategory);
+                            if (expense == null) {
+                                batch.result.skipped++;
+                            } else {
+                                batch.add(expense);
+                            }
+                        } catch (IllegalArgumentException | DateTimeException e) {
+                            batch.result.addError("Transaction " + transactionNumber + ": " + e.getMessage());
+                        }
+                    }
+                    txn = null;
+                } else if (txn != null) {
+                    if (tagIs(bytes, i + 1, close, "DTPOSTED")) {
+                        txn.posted = text(bytes, close + 1, valueEnd, charset);
+                    } else if (tagIs(bytes, i + 1, close, "TRNAMT")) {
+                        txn.amount = text(bytes, close + 1, valueEnd, charset);
+                    } else if (tagIs(bytes, i + 1, close, "NAME")) {
+                        txn.name = text(bytes, close + 1, valueEnd, charset);
+                    } else if (tagIs(bytes, i + 1, close, "MEMO")) {
+                        txn.memo = text(bytes, close + 1, valueEnd, charset);
+                    }
+                }
+                i = next;
+            }
+        }
+    }
+
+    private static final class OfxTransaction {
+        private String posted;
+        private String amount;
+        private String name;
+        private String memo;
+
+        Expense toExpense(int userId, String category) {
+            if (posted == null || posted.length() < 8 || amount == null) {
+                throw new IllegalArgumentException("Missing DTPOSTED or TRNAMT");
+            }
+            // OFX amounts are signed from the account's side: spending is negative
+            BigDecimal value = parseAmount(amount, amount.indexOf(',') >= 0 && amount.indexOf('.') < 0 ? ',' : '.').negate();
+            if (value.signum() <= 0) {
+                return null;
+            }
+            Expense expense = new Expense();
+            expense.setUserId(userId);
+            // DTPOSTED is YYYYMMDD optionally followed by a time and zone
+            expense.setDate(LocalDate.of(
+                Integer.parseInt(posted.substring(0, 4)),
+                Integer.parseInt(posted.substring(4, 6)),
+                Integer.parseInt(posted.substring(6, 8))));
+            expense.setAmount(value);
+            expense.setDescription(limit(name != null && !name.isEmpty() ? name : memo));
+            expense.setCategoryName(category);
+            return expense;
+        }
+    }
+
+    private String resolveCategory(String name, ImportProfile profile) throws SQLException {
+        if (name != null && !name.trim().isEmpty() && CategoryCache.getId(name.trim()) >= 0) {
+            return name.trim();
+        }
+        return profile.getDefaultCategory();
+    }
+
+    /**
+     * Parses amounts as banks write them: currency symbols, spaces and
+     * thousands separators are ignored, and a leading or trailing minus or
+     * surrounding parentheses make the amount negative.
+     */
+    static BigDecimal parseAmount(String text, char decimalSeparator) {
+        if (text == null) {
+            throw new IllegalArgumentException("Missing amount");
+        }
+        StringBuilder digits = new StringBuilder(text.length());
+        boolean negative = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            } else if (c == decimalSeparator) {
+                digits.append('.');
+            } else if (c == '-' || c == '(') {
+                negative = true;
+            }
+        }
+        if (digits.length() == 0) {
+            throw new IllegalArgumentException("Missing amount");
+        }
+        try {
+            BigDecimal amount = new BigDecimal(digits.toString());
+            return negative ? amount.negate() : amount;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid amount: " + text.trim());
+        }
+    }
+
+    // Matches the width of expenses.description; never null, so imported rows edit like typed ones
+    private static String limit(String description) {
+        if (description == null) {
+            return "";
+        }
+        String trimmed = description.trim();
+        return trimmed.length() > 255 ? trimmed.substring(0, 255) : trimmed;
+    }
+
+    private static int indexOf(byte[] bytes, int from, int to, byte b) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean tagIs(byte[] bytes, int from, int to, String tag) {
+        if (to - from != tag.length()) {
+            return false;
+        }
+        for (int i = 0; i < tag.length(); i++) {
+            if (Character.toUpperCase((char) bytes[from + i]) != tag.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String text(byte[] bytes, int from, int to, Charset charset) {
+        String value = new String(bytes, from, to - from, charset).trim();
+        if (value.indexOf('&') < 0) {
+            return value;
+        }
+        return value.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"")
+            .replace("&apos;", "'").replace("&amp;", "&");
+    }
+
+    /**
+     * Splits one CSV line into field ranges over the reader's buffer. Fields
+     * are only turned into Strings when asked for. Quoted fields may contain
+     * the delimiter and doubled quotes, but not line breaks.
+     */
+    private static final class CsvLine {
+        private final byte delimiter;
+        private final Charset charset;
+        private byte[] bytes;
+        private int[] starts = new int[16];
+        private int[] ends = new int[16];
+        private int count;
+
+        CsvLine(char delimiter, Charset charset) {
+            if (delimiter > 0x7F) {
+                throw new IllegalArgumentException("Delimiter must be an ASCII character");
+            }
+            this.delimiter = (byte) delimiter;
+            this.charset = charset;
+        }
+
+        void split(byte[] bytes, int start, int end) {
+            this.bytes = bytes;
+            count = 0;
+            int fieldStart = start;
+            boolean quoted = false;
+            for (int i = start; i < end; i++) {
+                byte b = bytes[i];
+                if (b == '"') {
+                    quoted = !quoted;
+                } else if (b == delimiter && !quoted) {
+                    addField(fieldStart, i);
+                    fieldStart = i + 1;
+                }
+            }
+            addField(fieldStart, end);
+        }
+
+        String field(int column) {
+            if (column >= count) {
+                throw new IllegalArgumentException("Missing column " + column);
+            }
+            int start = starts[column];
+            int end = ends[column];
+            if (end - start >= 2 && bytes[start] == '"' && bytes[end - 1] == '"') {
+                return new String(bytes, start + 1, end - start - 2, charset).replace("\"\"", "\"");
+            }
+            return new String(bytes, start, end - start, charset);
+        }
+
+        // Null for a column the profile doesn't use or the line doesn't have
+        String optionalField(int column) {
+            return column >= 0 && column < count ? field(column) : null;
+        }
+
+        private void addField(int start, int end) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            starts[count] = start;
+            ends[count] = end;
+            count++;
+        }
+    }
+
+    // Expenses waiting to be written, plus the running totals
+    private final class Batch {
+        private final int userId;
+        private final ImportResult result;
+        private final ProgressListener listener;
+        private final ImportDeduplicator deduplicator;
+        private final List<Expense> pending = new ArrayList<>(batchSize);
+        private LineReader reader;
+
+        Batch(int userId, ImportResult result, ProgressListener listener, ImportDeduplicator deduplicator) {
+            this.userId = userId;
+            this.result = result;
+            this.listener = listener;
+            this.deduplicator = deduplicator;
+        }
+
+        void add(Expense expense) throws SQLException {
+            if (deduplicator != null && deduplicator.isDuplicate(expense)) {
+                result.duplicates++;
+                return;
+            }
+            pending.add(expense);
+            if (pending.size() >= batchSize) {
+                flush();
+                if (listener != null) {
+                    listener.progress(reader.position(), reader.size(), result.imported);
+                }
+            }
+        }
+
+        void flush() throws SQLException {
+            if (pending.isEmpty()) {
+                return;
+            }
+            BatchInsertResult<Expense> inserted = expenseDAO.createExpenses(pending, batchSize);
+            result.imported += inserted.getInsertedCount();
+            for (BatchInsertResult.RowFailure<Expense> failure : inserted.getFailures()) {
+                Expense expense = failure.getRow();
+                result.addError(expense.getDate() + " " + expense.getAmount() + ": " + failure.getReason());
+            }
+            pending.clear();
+        }
+    }
+
+    /**
+     * Totals for one import. Only the first few rejected rows are described;
+     * the rest are just counted.
+     */
+    public static class ImportResult {
+        private int imported;
+        private int skipped;
+        private int duplicates;
+        private int failed;
+        private final List<String> errors = new ArrayList<>();
+
+        private void addError(String error) {
+            failed++;
+            if (errors.size() < MAX_ERRORS) {
+                errors.add(error);
+            }
+        }
+
+        public int getImportedCount() { return imported; }
+        // Deposits, refunds and other money coming in
+        public int getSkippedCount() { return skipped; }
+        // Rows matching an expense that was already recorded
+        public int getDuplicateCount() { return duplicates; }
+        public int getFailedCount() { return failed; }
+        public List<String> getErrors() { return Collections.unmodifiableList(errors); }
+    }
+}
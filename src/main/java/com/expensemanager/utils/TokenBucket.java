@@ -0,0 +1,39 @@
+package com.expensemanager.utils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client-side rate limiter. Holds up to a burst of tokens that refill at a
+ * steady rate; each request takes one. Instead of blocking, reserve() takes
+ * the next token even if it hasn't refilled yet and says how long to wait
+ * for it, so callers can schedule the request rather than park a thread.
+ */
+final class TokenBucket {
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long lastRefill;
+
+    TokenBucket(int burst, int perMinute) {
+        if (burst < 1 || perMinute < 1) {
+            throw new IllegalArgumentException("Rate limits must be positive: " + burst + ", " + perMinute);
+        }
+        this.capacity = burst;
+        this.tokensPerNano = perMinute / (double) TimeUnit.MINUTES.toNanos(1);
+        this.tokens = burst;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Takes a token and returns the nanoseconds until it is actually
+     * available, 0 if it is available now. Tokens reserved ahead are owed,
+     * so a burst of callers is spread out at the refill rate.
+     */
+    synchronized long reserve() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+        tokens -= 1;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / tokensPerNano);
+    }
+}
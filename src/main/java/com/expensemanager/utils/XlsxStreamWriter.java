@@ -0,0 +1,253 @@
+package com.expensemanager.utils;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes an .xlsx workbook row by row. Each row goes straight into the zipped
+ * sheet XML as it is written, and strings are stored inline rather than in a
+ * shared string table, so nothing accumulates in memory however many rows
+ * there are. When a sheet reaches Excel's row limit the writer continues on a
+ * new sheet, repeating the header row.
+ */
+final class XlsxStreamWriter implements Closeable {
+    // Excel's limit on rows per sheet
+    static final int MAX_ROWS_PER_SHEET = 1_048_576;
+    // Days between Excel's epoch (1899-12-30) and 1970-01-01
+    private static final long EXCEL_EPOCH_OFFSET = 25569;
+    // Style indexes into the cellXfs list written by writeWorkbook
+    private static final int STYLE_HEADER = 1;
+    private static final int STYLE_DATE = 2;
+    private static final int STYLE_AMOUNT = 3;
+
+    private final ZipOutputStream zip;
+    private final Writer writer;
+    private final String sheetName;
+    private String[] header;
+    private int sheetCount;
+    private int rowNum;
+    private int cellNum;
+
+    XlsxStreamWriter(Path file, String sheetName) throws IOException {
+        this.sheetName = sheetName;
+        zip = new ZipOutputStream(Files.newOutputStream(file));
+        // The zip entry being written changes underneath, so this is flushed before each entry closes
+        writer = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), 64 * 1024);
+        try {
+            startSheet();
+        } catch (IOException e) {
+            zip.close();
+            throw e;
+        }
+    }
+
+    // Written as the first row of every sheet
+    void writeHeader(String... titles) throws IOException {
+        header = titles.clone();
+        writeHeaderRow();
+    }
+
+    void startRow() throws IOException {
+        if (rowNum == MAX_ROWS_PER_SHEET) {
+            endSheet();
+            startSheet();
+            if (header != null) {
+                writeHeaderRow();
+            }
+        }
+        rowNum++;
+        cellNum = 0;
+        writer.write("<row r=\"");
+        writer.write(Integer.toString(rowNum));
+        writer.write("\">");
+    }
+
+    void endRow() throws IOException {
+        writer.write("</row>");
+    }
+
+    void writeString(String value) throws IOException {
+        writeString(value, 0);
+    }
+
+    void writeDate(LocalDate date) throws IOException {
+        if (date == null) {
+            cellNum++;
+            return;
+        }
+        writeNumber(Long.toString(date.toEpochDay() + EXCEL_EPOCH_OFFSET), STYLE_DATE);
+    }
+
+    void writeAmount(BigDecimal amount) throws IOException {
+        if (amount == null) {
+            cellNum++;
+            return;
+        }
+        writeNumber(amount.toPlainString(), STYLE_AMOUNT);
+    }
+
+    /**
+     * Finishes the last sheet and writes the workbook parts that list the
+     * sheets, which are only known once all rows are in.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            endSheet();
+            writeWorkbook();
+        } finally {
+            zip.close();
+        }
+    }
+
+    private void startSheet() throws IOException {
+        sheetCount++;
+        rowNum = 0;
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet" + sheetCount + ".xml"));
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n" +
+            "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>");
+    }
+
+    private void endSheet() throws IOException {
+        writer.write("</sheetData></worksheet>");
+        writer.flush();
+        zip.closeEntry();
+    }
+
+    private void writeHeaderRow() throws IOException {
+        startRow();
+        for (String title : header) {
+            writeString(title, STYLE_HEADER);
+        }
+        endRow();
+    }
+
+    private void writeString(String value, int style) throws IOException {
+        String ref = cellRef();
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        writer.write("<c r=\"");
+        writer.write(ref);
+        writer.write(style != 0 ? "\" s=\"" + style + "\" t=\"inlineStr\"><is><t>" : "\" t=\"inlineStr\"><is><t>");
+        writer.write(escape(value));
+        writer.write("</t></is></c>");
+    }
+
+    private void writeNumber(String value, int style) throws IOException {
+        writer.write("<c r=\"");
+        writer.write(cellRef());
+        writer.write("\" s=\"");
+        writer.write(Integer.toString(style));
+        writer.write("\"><v>");
+        writer.write(value);
+        writer.write("</v></c>");
+    }
+
+    // A1-style reference of the next cell in the current row
+    private String cellRef() {
+        int column = cellNum++;
+        StringBuilder ref = new StringBuilder(8);
+        do {
+            ref.insert(0, (char) ('A' + column % 26));
+            column = column / 26 - 1;
+        } while (column >= 0);
+        return ref.append(rowNum).toString();
+    }
+
+    private void writeWorkbook() throws IOException {
+        StringBuilder contentTypes = new StringBuilder(
+            "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">" +
+            "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>" +
+            "<Default Extension=\"xml\" ContentType=\"application/xml\"/>" +
+            "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>" +
+            "<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>");
+        StringBuilder sheets = new StringBuilder("<sheets>");
+        StringBuilder workbookRels = new StringBuilder(
+            "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">" +
+            "<Relationship Id=\"rId0\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/styles\" Target=\"styles.xml\"/>");
+        for (int i = 1; i <= sheetCount; i++) {
+            contentTypes.append("<Override PartName=\"/xl/worksheets/sheet").append(i)
+                .append(".xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+            String name = sheetCount == 1 ? sheetName : sheetName + " " + i;
+            sheets.append("<sheet name=\"").append(escape(name)).append("\" sheetId=\"").append(i)
+                .append("\" r:id=\"rId").append(i).append("\"/>");
+            workbookRels.append("<Relationship Id=\"rId").append(i)
+                .append("\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet\" Target=\"worksheets/sheet")
+                .append(i).append(".xml\"/>");
+        }
+
+        writePart("[Content_Types].xml", contentTypes.append("</Types>").toString());
+        writePart("_rels/.rels",
+            "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">" +
+            "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\" Target=\"xl/workbook.xml\"/>" +
+            "</Relationships>");
+        writePart("xl/workbook.xml",
+            "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" " +
+            "xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">" +
+            sheets.append("</sheets>") + "</workbook>");
+        writePart("xl/_rels/workbook.xml.rels", workbookRels.append("</Relationships>").toString());
+        writePart("xl/styles.xml",
+            "<styleSheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">" +
+            "<numFmts count=\"1\"><numFmt numFmtId=\"164\" formatCode=\"yyyy-mm-dd\"/></numFmts>" +
+            "<fonts count=\"2\"><font><sz val=\"11\"/><name val=\"Calibri\"/></font>" +
+            "<font><b/><sz val=\"11\"/><name val=\"Calibri\"/></font></fonts>" +
+            "<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill>" +
+            "<fill><patternFill patternType=\"gray125\"/></fill></fills>" +
+            "<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>" +
+            "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>" +
+            "<cellXfs count=\"4\">" +
+            "<xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>" +
+            "<xf numFmtId=\"0\" fontId=\"1\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyFont=\"1\"/>" +
+            "<xf numFmtId=\"164\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyNumberFormat=\"1\"/>" +
+            "<xf numFmtId=\"4\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyNumberFormat=\"1\"/>" +
+            "</cellXfs>" +
+            "</styleSheet>");
+    }
+
+    private void writePart(String name, String xml) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+        writer.write(xml);
+        writer.flush();
+        zip.closeEntry();
+    }
+
+    // Also drops control characters, which XML 1.0 can't represent at all
+    private static String escape(String value) {
+        StringBuilder escaped = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String replacement;
+            switch (c) {
+                case '&': replacement = "&amp;"; break;
+                case '<': replacement = "&lt;"; break;
+                case '>': replacement = "&gt;"; break;
+                case '"': replacement = "&quot;"; break;
+                default:
+                    replacement = c < 0x20 && c != '\t' && c != '\n' && c != '\r' ? "" : null;
+            }
+            if (replacement != null && escaped == null) {
+                escaped = new StringBuilder(value.length() + 16).append(value, 0, i);
+            }
+            if (escaped != null) {
+                if (replacement != null) {
+                    escaped.append(replacement);
+                } else {
+                    escaped.append(c);
+                }
+            }
+        }
+        return escaped != null ? escaped.toString() : value;
+    }
+}
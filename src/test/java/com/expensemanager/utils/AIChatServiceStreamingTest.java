@@ -0,0 +1,131 @@
+package com.expensemanager.utils;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Streams answers from a local server speaking the API's server-sent events.
+ * Each test asks a different question, since answers are cached process-wide.
+ */
+public class AIChatServiceStreamingTest {
+    private static final Map<String, Object> DATA = Collections.singletonMap("Total Expenses", "120.00");
+
+    private MockWebServer server;
+    private AIChatService service;
+    private final List<String> tokens = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        service = new AIChatService("test-key", AIChatService.DEFAULT_HISTORY_TOKEN_BUDGET,
+            server.url("/v1/chat/completions").toString());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void streamsTokensAndSkipsKeepAliveComments() throws Exception {
+        server.enqueue(events(
+            ": keep-alive",
+            "data: {\"choices\":[{\"delta\":{\"role\":\"assistant\"}}]}",
+            "data: {\"choices\":[{\"delta\":{\"content\":\"You spent\"}}]}",
+            ": keep-alive",
+            "data: {\"choices\":[{\"delta\":{\"content\":\" $120.\"}}]}",
+            "data: [DONE]"));
+
+        String answer = service.streamQuestion("How much did I spend?", DATA, tokens::add);
+
+        assertEquals("You spent $120.", answer);
+        assertEquals(Arrays.asList("You spent", " $120."), tokens);
+        RecordedRequest request = server.takeRequest();
+        assertEquals("text/event-stream", request.getHeader("Accept"));
+        assertEquals("Bearer test-key", request.getHeader("Authorization"));
+        assertTrue(request.getBody().readUtf8().contains("\"stream\":true"));
+    }
+
+    @Test
+    public void stopsReadingAtDone() throws Exception {
+        server.enqueue(events(
+            "data: {\"choices\":[{\"delta\":{\"content\":\"Food\"}}]}",
+            "data: [DONE]",
+            "data: {\"choices\":[{\"delta\":{\"content\":\" and more\"}}]}"));
+
+        String answer = service.streamQuestion("What is my top category?", DATA, tokens::add);
+
+        assertEquals("Food", answer);
+        assertEquals(Collections.singletonList("Food"), tokens);
+    }
+
+    @Test
+    public void brokenStreamIsNotRetried() throws Exception {
+        // The server hangs up halfway through the body, after the first token
+        StringBuilder padding = new StringBuilder(": ");
+        for (int i = 0; i < 400; i++) {
+            padding.append('x');
+        }
+        server.enqueue(events(
+            "data: {\"choices\":[{\"delta\":{\"content\":\"Partial\"}}]}",
+            padding.toString(),
+            "data: {\"choices\":[{\"delta\":{\"content\":\" answer\"}}]}",
+            "data: [DONE]")
+            .setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY));
+        // Would be served to a retry
+        server.enqueue(events(
+            "data: {\"choices\":[{\"delta\":{\"content\":\"Partial answer\"}}]}",
+            "data: [DONE]"));
+
+        try {
+            service.streamQuestion("Summarize my month", DATA, tokens::add);
+            fail("Expected the interrupted stream to fail");
+        } catch (AIServiceException e) {
+            assertFalse(e.isRetryable());
+        }
+        assertEquals(Collections.singletonList("Partial"), tokens);
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void measuresTimeToFirstToken() throws Exception {
+        assertEquals(-1, service.getLastTimeToFirstTokenMillis());
+        server.enqueue(events(
+            "data: {\"choices\":[{\"delta\":{\"content\":\"Later\"}}]}",
+            "data: [DONE]")
+            .setBodyDelay(300, TimeUnit.MILLISECONDS));
+
+        service.streamQuestion("When is my next bill?", DATA, tokens::add);
+
+        assertTrue(service.getLastTimeToFirstTokenMillis() >= 300);
+    }
+
+    // Each line followed by the blank line that ends an event
+    private static MockResponse events(String... lines) {
+        StringBuilder body = new StringBuilder();
+        for (String line : lines) {
+            body.append(line).append("\n\n");
+        }
+        return new MockResponse()
+            .setHeader("Content-Type", "text/event-stream")
+            .setBody(body.toString());
+    }
+}